@@ -56,7 +56,10 @@ import org.traccar.handler.events.MediaEventHandler;
 import org.traccar.handler.events.MotionEventHandler;
 import org.traccar.handler.events.OverspeedEventHandler;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
 
@@ -65,6 +68,7 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
     private final Config config;
     private final String protocol;
     private final int timeout;
+    private final ProcessingExecutor processingExecutor;
 
     public BasePipelineFactory(TrackerConnector connector, Config config, String protocol) {
         this.injector = Main.getInjector();
@@ -77,19 +81,18 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
         } else {
             this.timeout = timeout;
         }
+        processingExecutor = injector.getInstance(ProcessingExecutor.class);
     }
 
     protected abstract void addTransportHandlers(PipelineBuilder pipeline);
 
     protected abstract void addProtocolHandlers(PipelineBuilder pipeline);
 
-    @SafeVarargs
-    private void addHandlers(ChannelPipeline pipeline, Class<? extends ChannelHandler>... handlerClasses) {
-        for (Class<? extends ChannelHandler> handlerClass : handlerClasses) {
-            if (handlerClass != null) {
-                pipeline.addLast(injector.getInstance(handlerClass));
-            }
-        }
+    private List<ChannelInboundHandler> createHandlers(List<Class<? extends ChannelInboundHandler>> handlerClasses) {
+        return handlerClasses.stream()
+                .<ChannelInboundHandler>map(injector::getInstance)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public static <T extends ChannelHandler> T getHandler(ChannelPipeline pipeline, Class<T> clazz) {
@@ -142,8 +145,7 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
             pipeline.addLast(handler);
         });
 
-        addHandlers(
-                pipeline,
+        List<ChannelInboundHandler> handlers = createHandlers(List.of(
                 TimeHandler.class,
                 GeolocationHandler.class,
                 HemisphereHandler.class,
@@ -170,7 +172,14 @@ public abstract class BasePipelineFactory extends ChannelInitializer<Channel> {
                 IgnitionEventHandler.class,
                 MaintenanceEventHandler.class,
                 DriverEventHandler.class,
-                MainEventHandler.class);
+                MainEventHandler.class));
+
+        if (processingExecutor.isEnabled()) {
+            pipeline.addLast(new ProcessingHandler(processingExecutor, handlers));
+            pipeline.addLast(injector.getInstance(MainEventHandler.class));
+        } else {
+            handlers.forEach(pipeline::addLast);
+        }
     }
 
 }
@@ -44,6 +44,8 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
 
     private static final String PROTOCOL_UNKNOWN = "unknown";
 
+    private static final TimeZone TIME_ZONE_UTC = TimeZone.getTimeZone("UTC");
+
     private final Protocol protocol;
 
     private CacheManager cacheManager;
@@ -52,6 +54,9 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     private MediaManager mediaManager;
     private CommandsManager commandsManager;
 
+    private String speedUnits;
+    private boolean speedUnitsResolved;
+
     public BaseProtocolDecoder(Protocol protocol) {
         this.protocol = protocol;
     }
@@ -107,7 +112,11 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     }
 
     protected double convertSpeed(double value, String defaultUnits) {
-        switch (getConfig().getString(getProtocolName() + ".speed", defaultUnits)) {
+        if (!speedUnitsResolved) {
+            speedUnits = getConfig().getString(getProtocolName() + ".speed");
+            speedUnitsResolved = true;
+        }
+        switch (speedUnits != null ? speedUnits : defaultUnits) {
             case "kmh":
                 return UnitsConverter.knotsFromKph(value);
             case "mps":
@@ -125,12 +134,14 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     }
 
     protected TimeZone getTimeZone(long deviceId, String defaultTimeZone) {
-        TimeZone result = TimeZone.getTimeZone(defaultTimeZone);
-        String timeZoneName = AttributeUtil.lookup(cacheManager, Keys.DECODER_TIMEZONE, deviceId);
-        if (timeZoneName != null) {
-            result = TimeZone.getTimeZone(timeZoneName);
+        TimeZone result = cacheManager.getDeviceValue(deviceId, TimeZone.class, () -> {
+            String timeZoneName = AttributeUtil.lookup(cacheManager, Keys.DECODER_TIMEZONE, deviceId);
+            return timeZoneName != null ? TimeZone.getTimeZone(timeZoneName) : null;
+        });
+        if (result == null) {
+            result = defaultTimeZone.equals("UTC") ? TIME_ZONE_UTC : TimeZone.getTimeZone(defaultTimeZone);
         }
-        return result;
+        return result; // shared instance, clone before adjusting the offset
     }
 
     public DeviceSession getDeviceSession(Channel channel, SocketAddress remoteAddress, String... uniqueIds) {
@@ -20,8 +20,17 @@ import com.google.inject.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.broadcast.BroadcastService;
+import org.traccar.database.DeviceLookupService;
+import org.traccar.database.LatestPositionWriter;
+import org.traccar.database.PositionBatchWriter;
+import org.traccar.geocoder.GeocoderCache;
+import org.traccar.geolocation.GeolocationCache;
 import org.traccar.helper.model.DeviceUtil;
 import org.traccar.schedule.ScheduleManager;
+import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.DeviceStateManager;
+import org.traccar.session.state.GeofenceTracker;
+import org.traccar.speedlimit.SpeedLimitTileCache;
 import org.traccar.storage.DatabaseModule;
 import org.traccar.storage.Storage;
 //import org.traccar.web.WebModule;
@@ -127,7 +136,10 @@ public final class Main {
             }
 
             var services = Stream.of(
-                    ServerManager.class, /*WebServer.class,*/ ScheduleManager.class, BroadcastService.class)
+                    ServerManager.class, ProcessingExecutor.class, PositionBatchWriter.class,
+                    LatestPositionWriter.class, DeviceStateManager.class, GeofenceTracker.class, GeocoderCache.class,
+                    GeolocationCache.class, SpeedLimitTileCache.class, /*WebServer.class,*/ ScheduleManager.class,
+                    DeviceLookupService.class, CacheManager.class, BroadcastService.class)
                     .map(injector::getInstance)
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
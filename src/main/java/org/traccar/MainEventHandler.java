@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.database.LatestPositionWriter;
 import org.traccar.database.StatisticsManager;
 import org.traccar.handler.AcknowledgementHandler;
 import org.traccar.helper.DateUtil;
@@ -35,11 +36,7 @@ import org.traccar.model.Device;
 import org.traccar.model.Position;
 import org.traccar.session.ConnectionManager;
 import org.traccar.session.cache.CacheManager;
-import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Condition;
-import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -58,16 +55,16 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
     private final Set<String> logAttributes = new LinkedHashSet<>();
 
     private final CacheManager cacheManager;
-    private final Storage storage;
+    private final LatestPositionWriter latestPositionWriter;
     private final ConnectionManager connectionManager;
     private final StatisticsManager statisticsManager;
 
     @Inject
     public MainEventHandler(
-            Config config, CacheManager cacheManager, Storage storage, ConnectionManager connectionManager,
-            StatisticsManager statisticsManager) {
+            Config config, CacheManager cacheManager, LatestPositionWriter latestPositionWriter,
+            ConnectionManager connectionManager, StatisticsManager statisticsManager) {
         this.cacheManager = cacheManager;
-        this.storage = storage;
+        this.latestPositionWriter = latestPositionWriter;
         this.connectionManager = connectionManager;
         this.statisticsManager = statisticsManager;
         String connectionlessProtocolList = config.getString(Keys.STATUS_IGNORE_OFFLINE);
@@ -86,12 +83,8 @@ public class MainEventHandler extends ChannelInboundHandlerAdapter {
 
             try {
                 if (PositionUtil.isLatest(cacheManager, position)) {
-                    Device updatedDevice = new Device();
-                    updatedDevice.setId(position.getRastreador_id());
-                    updatedDevice.setRastreador_posicao_id(position.getId());
-                    storage.updateObject(updatedDevice, new Request(
-                            new Columns.Include("rastreador_posicao_id"),
-                            new Condition.Equals("id", updatedDevice.getId())));
+                    device.setRastreador_posicao_id(position.getId());
+                    latestPositionWriter.update(position.getRastreador_id(), position.getId());
 
                     cacheManager.updatePosition(position);
                     connectionManager.updatePosition(true, position);
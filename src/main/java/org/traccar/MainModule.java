@@ -47,11 +47,13 @@ import org.traccar.forward.PositionForwarderUrl;
 import org.traccar.geocoder.AddressFormat;
 import org.traccar.geocoder.BanGeocoder;
 import org.traccar.geocoder.BingMapsGeocoder;
+import org.traccar.geocoder.CachingGeocoder;
 import org.traccar.geocoder.FactualGeocoder;
 import org.traccar.geocoder.GeoapifyGeocoder;
 import org.traccar.geocoder.GeocodeFarmGeocoder;
 import org.traccar.geocoder.GeocodeXyzGeocoder;
 import org.traccar.geocoder.Geocoder;
+import org.traccar.geocoder.GeocoderCache;
 import org.traccar.geocoder.GisgraphyGeocoder;
 import org.traccar.geocoder.GoogleGeocoder;
 import org.traccar.geocoder.HereGeocoder;
@@ -61,10 +63,12 @@ import org.traccar.geocoder.MapTilerGeocoder;
 import org.traccar.geocoder.MapboxGeocoder;
 import org.traccar.geocoder.MapmyIndiaGeocoder;
 import org.traccar.geocoder.NominatimGeocoder;
+import org.traccar.geocoder.OfflineGeocoder;
 import org.traccar.geocoder.OpenCageGeocoder;
 import org.traccar.geocoder.PositionStackGeocoder;
 import org.traccar.geocoder.TestGeocoder;
 import org.traccar.geocoder.TomTomGeocoder;
+import org.traccar.geolocation.GeolocationCache;
 import org.traccar.geolocation.GeolocationProvider;
 import org.traccar.geolocation.GoogleGeolocationProvider;
 import org.traccar.geolocation.MozillaGeolocationProvider;
@@ -85,6 +89,8 @@ import org.traccar.sms.SmsManager;
 import org.traccar.sms.SnsSmsClient;
 import org.traccar.speedlimit.OverpassSpeedLimitProvider;
 import org.traccar.speedlimit.SpeedLimitProvider;
+import org.traccar.speedlimit.SpeedLimitTileCache;
+import org.traccar.speedlimit.TileSpeedLimitProvider;
 import org.traccar.storage.DatabaseStorage;
 import org.traccar.storage.MemoryStorage;
 import org.traccar.storage.Storage;
@@ -194,7 +200,8 @@ public class MainModule extends AbstractModule {
 
     @Singleton
     @Provides
-    public static Geocoder provideGeocoder(Config config, Client client, StatisticsManager statisticsManager) {
+    public static Geocoder provideGeocoder(
+            Config config, Client client, StatisticsManager statisticsManager, GeocoderCache geocoderCache) {
         if (config.getBoolean(Keys.GEOCODER_ENABLE)) {
             String type = config.getString(Keys.GEOCODER_TYPE, "google");
             String url = config.getString(Keys.GEOCODER_URL);
@@ -204,67 +211,75 @@ public class MainModule extends AbstractModule {
             String formatString = config.getString(Keys.GEOCODER_FORMAT);
             AddressFormat addressFormat = formatString != null ? new AddressFormat(formatString) : new AddressFormat();
 
-            int cacheSize = config.getInteger(Keys.GEOCODER_CACHE_SIZE);
             Geocoder geocoder;
             switch (type) {
                 case "test":
                     geocoder = new TestGeocoder();
                     break;
+                case "offline":
+                    if (!config.hasKey(Keys.GEOCODER_FILE)) {
+                        throw new RuntimeException("Offline geocoder requires geocoder.file to be configured");
+                    }
+                    geocoder = new OfflineGeocoder(config.getString(Keys.GEOCODER_FILE), language, addressFormat);
+                    break;
                 case "nominatim":
-                    geocoder = new NominatimGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new NominatimGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "locationiq":
-                    geocoder = new LocationIqGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new LocationIqGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "gisgraphy":
-                    geocoder = new GisgraphyGeocoder(client, url, cacheSize, addressFormat);
+                    geocoder = new GisgraphyGeocoder(client, url, addressFormat);
                     break;
                 case "mapquest":
-                    geocoder = new MapQuestGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new MapQuestGeocoder(client, url, key, addressFormat);
                     break;
                 case "opencage":
-                    geocoder = new OpenCageGeocoder(client, url, key, language, cacheSize, addressFormat);
+                    geocoder = new OpenCageGeocoder(client, url, key, language, addressFormat);
                     break;
                 case "bingmaps":
-                    geocoder = new BingMapsGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new BingMapsGeocoder(client, url, key, addressFormat);
                     break;
                 case "factual":
-                    geocoder = new FactualGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new FactualGeocoder(client, url, key, addressFormat);
                     break;
                 case "geocodefarm":
-                    geocoder = new GeocodeFarmGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GeocodeFarmGeocoder(client, key, language, addressFormat);
                     break;
                 case "geocodexyz":
-                    geocoder = new GeocodeXyzGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new GeocodeXyzGeocoder(client, key, addressFormat);
                     break;
                 case "ban":
-                    geocoder = new BanGeocoder(client, cacheSize, addressFormat);
+                    geocoder = new BanGeocoder(client, addressFormat);
                     break;
                 case "here":
-                    geocoder = new HereGeocoder(client, url, id, key, language, cacheSize, addressFormat);
+                    geocoder = new HereGeocoder(client, url, id, key, language, addressFormat);
                     break;
                 case "mapmyindia":
-                    geocoder = new MapmyIndiaGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new MapmyIndiaGeocoder(client, url, key, addressFormat);
                     break;
                 case "tomtom":
-                    geocoder = new TomTomGeocoder(client, url, key, cacheSize, addressFormat);
+                    geocoder = new TomTomGeocoder(client, url, key, addressFormat);
                     break;
                 case "positionstack":
-                    geocoder = new PositionStackGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new PositionStackGeocoder(client, key, addressFormat);
                     break;
                 case "mapbox":
-                    geocoder = new MapboxGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new MapboxGeocoder(client, key, addressFormat);
                     break;
                 case "maptiler":
-                    geocoder = new MapTilerGeocoder(client, key, cacheSize, addressFormat);
+                    geocoder = new MapTilerGeocoder(client, key, addressFormat);
                     break;
                 case "geoapify":
-                    geocoder = new GeoapifyGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GeoapifyGeocoder(client, key, language, addressFormat);
                     break;
                 default:
-                    geocoder = new GoogleGeocoder(client, key, language, cacheSize, addressFormat);
+                    geocoder = new GoogleGeocoder(client, key, language, addressFormat);
                     break;
             }
+            if (geocoderCache.isEnabled()) {
+                geocoder = new CachingGeocoder(geocoder, geocoderCache);
+            }
             geocoder.setStatisticsManager(statisticsManager);
             return geocoder;
         }
@@ -294,11 +309,14 @@ public class MainModule extends AbstractModule {
 
     @Singleton
     @Provides
-    public static SpeedLimitProvider provideSpeedLimitProvider(Config config, Client client) {
+    public static SpeedLimitProvider provideSpeedLimitProvider(
+            Config config, Client client, SpeedLimitTileCache speedLimitTileCache) {
         if (config.getBoolean(Keys.SPEED_LIMIT_ENABLE)) {
             String type = config.getString(Keys.SPEED_LIMIT_TYPE, "overpass");
             String url = config.getString(Keys.SPEED_LIMIT_URL);
             switch (type) {
+                case "tiles":
+                    return new TileSpeedLimitProvider(client, url, speedLimitTileCache);
                 case "overpass":
                 default:
                     return new OverpassSpeedLimitProvider(client, url);
@@ -310,10 +328,11 @@ public class MainModule extends AbstractModule {
     @Singleton
     @Provides
     public static GeolocationHandler provideGeolocationHandler(
-            Config config, @Nullable GeolocationProvider geolocationProvider, CacheManager cacheManager,
-            StatisticsManager statisticsManager) {
-        if (geolocationProvider != null) {
-            return new GeolocationHandler(config, geolocationProvider, cacheManager, statisticsManager);
+            Config config, @Nullable GeolocationProvider geolocationProvider, GeolocationCache geolocationCache,
+            CacheManager cacheManager, StatisticsManager statisticsManager) {
+        if (geolocationProvider != null || geolocationCache.isEnabled()) {
+            return new GeolocationHandler(
+                    config, geolocationProvider, geolocationCache, cacheManager, statisticsManager);
         }
         return null;
     }
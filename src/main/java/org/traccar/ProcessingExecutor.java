@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded worker pool that runs tasks for different devices in parallel, but strictly one at a time and in submission
+ * order for the same device. A task is considered finished only when it calls the provided completion callback, so it
+ * can continue asynchronously (e.g. after a geocoder response) without letting the next task of the device overtake it.
+ */
+@Singleton
+public class ProcessingExecutor implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessingExecutor.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    public interface Task {
+        void run(Runnable completion);
+    }
+
+    private final ExecutorService executor;
+    private final int queueLimit;
+
+    private final Map<Long, Queue<Task>> queues = new ConcurrentHashMap<>();
+
+    @Inject
+    public ProcessingExecutor(Config config) {
+        int threads = config.getInteger(Keys.PROCESSING_THREADS);
+        executor = threads > 0 ? Executors.newFixedThreadPool(threads) : null;
+        queueLimit = config.getInteger(Keys.PROCESSING_QUEUE_LIMIT);
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+
+    public void execute(long deviceId, Task task) {
+        AtomicBoolean start = new AtomicBoolean();
+        queues.compute(deviceId, (key, queue) -> {
+            if (queue == null) {
+                start.set(true);
+                return new LinkedList<>();
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (start.get()) {
+            submit(deviceId, task);
+        }
+    }
+
+    /**
+     * Continues a chain that was suspended by an asynchronous operation. The task runs on a worker thread, or on the
+     * given executor, usually the channel event loop, if the processing stage is disabled.
+     */
+    public void resume(Executor fallback, Runnable task) {
+        try {
+            (executor != null ? executor : fallback).execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Processing resumed inline", e);
+            task.run();
+        }
+    }
+
+    private void submit(long deviceId, Task task) {
+        Runnable runnable = () -> {
+            AtomicBoolean completed = new AtomicBoolean();
+            Runnable completion = () -> {
+                if (completed.compareAndSet(false, true)) {
+                    complete(deviceId);
+                }
+            };
+            try {
+                task.run(completion);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Processing task error", e);
+                completion.run();
+            }
+        };
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            runnable.run();
+        }
+    }
+
+    private void complete(long deviceId) {
+        AtomicReference<Task> next = new AtomicReference<>();
+        queues.computeIfPresent(deviceId, (key, queue) -> {
+            next.set(queue.poll());
+            return next.get() != null ? queue : null;
+        });
+        if (next.get() != null) {
+            submit(deviceId, next.get());
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Processing did not finish, {} devices pending", queues.size());
+            }
+        }
+    }
+
+}
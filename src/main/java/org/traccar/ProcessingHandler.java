@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.traccar.model.Position;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands decoded positions over to the {@link ProcessingExecutor}, so data handlers doing blocking work don't stall the
+ * network thread. Positions of the same device are processed in order. Reading from the channel is paused when too
+ * many of its positions are waiting.
+ */
+public class ProcessingHandler extends ChannelInboundHandlerAdapter {
+
+    private final ProcessingExecutor processingExecutor;
+    private final List<ChannelInboundHandler> handlers;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public ProcessingHandler(ProcessingExecutor processingExecutor, List<ChannelInboundHandler> handlers) {
+        this.processingExecutor = processingExecutor;
+        this.handlers = handlers;
+    }
+
+    private void resumeReading(ChannelHandlerContext ctx) {
+        if (pending.get() <= processingExecutor.getQueueLimit() / 2 && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position) {
+            Position position = (Position) msg;
+            if (pending.incrementAndGet() >= processingExecutor.getQueueLimit()) {
+                ctx.channel().config().setAutoRead(false);
+                // queue could have drained before reading was paused, so nothing else would resume it
+                resumeReading(ctx);
+            }
+            processingExecutor.execute(position.getRastreador_id(), completion -> {
+                Runnable onComplete = () -> {
+                    pending.decrementAndGet();
+                    resumeReading(ctx);
+                    completion.run();
+                };
+                new ProcessingContext(ctx, handlers, onComplete).fireChannelRead(position);
+            });
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+}
@@ -384,6 +384,15 @@ public final class Keys {
             List.of(KeyType.CONFIG, KeyType.DEVICE),
             0.01);
 
+    /**
+     * Enable geofences. Geofences linked to devices are loaded into the device cache and indexed, so positions can
+     * be matched against them. Disabled by default because geofence tables are not part of all schemas.
+     */
+    public static final ConfigKey<Boolean> GEOFENCE_ENABLE = new BooleanConfigKey(
+            "geofence.enable",
+            List.of(KeyType.CONFIG),
+            false);
+
     /**
      * Global polyline geofence distance. Within that distance from the polyline, point is considered within the
      * geofence. Each individual geofence can also has 'polylineDistance' attribute which will take precedence.
@@ -459,6 +468,42 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             "SELECT 1");
 
+    /**
+     * Number of rows fetched from the database at once when results are streamed, for example for exports. On MySQL
+     * rows are always streamed one by one.
+     */
+    public static final ConfigKey<Integer> DATABASE_FETCH_SIZE = new IntegerConfigKey(
+            "database.fetchSize",
+            List.of(KeyType.CONFIG),
+            1000);
+
+    /**
+     * Group commit window in milliseconds. Positions received within the window are inserted in one batch. By default
+     * positions are stored one by one. For MySQL add 'rewriteBatchedStatements=true' to the URL.
+     */
+    public static final ConfigKey<Long> DATABASE_BATCH_WINDOW = new LongConfigKey(
+            "database.batchWindow",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Maximum number of positions in a single batch. Batch is stored immediately when the limit is reached, without
+     * waiting for the end of the window.
+     */
+    public static final ConfigKey<Integer> DATABASE_BATCH_SIZE = new IntegerConfigKey(
+            "database.batchSize",
+            List.of(KeyType.CONFIG),
+            500);
+
+    /**
+     * Interval in milliseconds for writing the latest position reference of devices, so several updates result in a
+     * single write. By default it's written for every position.
+     */
+    public static final ConfigKey<Long> DATABASE_LATEST_POSITION_INTERVAL = new LongConfigKey(
+            "database.latestPositionInterval",
+            List.of(KeyType.CONFIG),
+            0L);
+
     /**
      * Store original HEX or string data as "raw" attribute in the corresponding position.
      */
@@ -473,6 +518,49 @@ public final class Keys {
             "database.throttleUnknown",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Load cached objects of all devices on startup with a few bulk queries instead of loading them for each device
+     * when it connects. Loaded devices stay in the cache while the server is running.
+     */
+    public static final ConfigKey<Boolean> DATABASE_CACHE_WARMUP = new BooleanConfigKey(
+            "database.cacheWarmup",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Delay in milliseconds for applying cache invalidations. Changes received within the delay are applied together
+     * and duplicates are applied once. By default changes are applied immediately.
+     */
+    public static final ConfigKey<Long> DATABASE_CACHE_INVALIDATION_DELAY = new LongConfigKey(
+            "database.cacheInvalidationDelay",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Time in milliseconds to keep cached objects of a device after it's no longer used, so they are not reloaded every
+     * time. By default they are released immediately.
+     */
+    public static final ConfigKey<Long> DATABASE_CACHE_RETENTION = new LongConfigKey(
+            "database.cacheRetention",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Maximum number of unused devices kept in the cache during the retention time. Oldest are evicted first.
+     */
+    public static final ConfigKey<Integer> DATABASE_CACHE_RETENTION_LIMIT = new IntegerConfigKey(
+            "database.cacheRetentionLimit",
+            List.of(KeyType.CONFIG),
+            10000);
+
+    /**
+     * Interval in seconds for reloading the in-memory directory of device identifiers from the database. The directory
+     * is always loaded on startup and updated on change notifications. By default it's not reloaded periodically.
+     */
+    public static final ConfigKey<Long> DATABASE_DEVICE_REFRESH_INTERVAL = new LongConfigKey(
+            "database.deviceRefreshInterval",
+            List.of(KeyType.CONFIG),
+            0L);
+
     /**
      * By default, server syncs with the database if it encounters and unknown device. This flag allows to disable that
      * behavior to improve performance in some cases.
@@ -707,6 +795,21 @@ public final class Keys {
             "status.ignoreOffline",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Path to the file used to persist device state, such as motion and overspeed. If not set, it's reset on restart.
+     */
+    public static final ConfigKey<String> STATE_FILE = new StringConfigKey(
+            "state.file",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Interval in seconds for writing changed device state to the state file. Default value is one minute.
+     */
+    public static final ConfigKey<Long> STATE_CHECKPOINT_INTERVAL = new LongConfigKey(
+            "state.checkpointInterval",
+            List.of(KeyType.CONFIG),
+            60L);
+
     /**
      * Path to the media folder. Server stores audio, video and photo files in that folder. Sub-folders will be
      * automatically created for each device by unique id.
@@ -1179,6 +1282,14 @@ public final class Keys {
             List.of(KeyType.CONFIG),
             86400L);
 
+    /**
+     * List of position attributes exported as separate CSV columns, for example 'ignition,fuel,power'. If not set, all
+     * attributes are exported as JSON in a single trailing 'attributes' column.
+     */
+    public static final ConfigKey<String> REPORT_CSV_ATTRIBUTES = new StringConfigKey(
+            "report.csvAttributes",
+            List.of(KeyType.CONFIG));
+
     /**
      * Trips less than minimal duration and minimal distance are ignored. 300 seconds and 500 meters are default.
      */
@@ -1418,6 +1529,23 @@ public final class Keys {
             "coordinates.maxError",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of worker threads used for position processing. When set, decoded positions are processed outside of the
+     * network threads, keeping the original order for each device. By default processing runs on the network threads.
+     */
+    public static final ConfigKey<Integer> PROCESSING_THREADS = new IntegerConfigKey(
+            "processing.threads",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of positions from a single connection waiting for processing. When the limit is reached, reading
+     * from the connection is paused until half of the backlog is processed.
+     */
+    public static final ConfigKey<Integer> PROCESSING_QUEUE_LIMIT = new IntegerConfigKey(
+            "processing.queueLimit",
+            List.of(KeyType.CONFIG),
+            1000);
+
     /**
      * Enable to save device IP addresses information. Disabled by default.
      */
@@ -1492,6 +1620,13 @@ public final class Keys {
             "geocoder.url",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Path to the places file in GeoNames format used by the offline geocoder. Changes are picked up automatically.
+     */
+    public static final ConfigKey<String> GEOCODER_FILE = new StringConfigKey(
+            "geocoder.file",
+            List.of(KeyType.CONFIG));
+
     /**
      * App id for use with Here provider.
      */
@@ -1527,6 +1662,29 @@ public final class Keys {
             "geocoder.cacheSize",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Number of decimal places of coordinates used for geocoder cache keys. Default value is 4, about 10 meters.
+     */
+    public static final ConfigKey<Integer> GEOCODER_CACHE_PRECISION = new IntegerConfigKey(
+            "geocoder.cachePrecision",
+            List.of(KeyType.CONFIG),
+            4);
+
+    /**
+     * Time in seconds cached addresses stay valid. By default cached addresses don't expire.
+     */
+    public static final ConfigKey<Long> GEOCODER_CACHE_TTL = new LongConfigKey(
+            "geocoder.cacheTtl",
+            List.of(KeyType.CONFIG),
+            0L);
+
+    /**
+     * Path to the file used to persist geocoder cache across restarts. If not set, cache is kept in memory only.
+     */
+    public static final ConfigKey<String> GEOCODER_CACHE_FILE = new StringConfigKey(
+            "geocoder.cacheFile",
+            List.of(KeyType.CONFIG));
+
     /**
      * Disable automatic reverse geocoding requests for all positions.
      */
@@ -1616,6 +1774,39 @@ public final class Keys {
             "geolocation.mnc",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Size of the shared geolocation cache. Results are cached by a fingerprint made of the strongest cell towers and
+     * WiFi access points, so different devices reporting the same network reuse the result. Disabled by default.
+     */
+    public static final ConfigKey<Integer> GEOLOCATION_CACHE_SIZE = new IntegerConfigKey(
+            "geolocation.cacheSize",
+            List.of(KeyType.CONFIG),
+            0);
+
+    /**
+     * Time in seconds cached geolocation results stay valid. Default value is one day.
+     */
+    public static final ConfigKey<Long> GEOLOCATION_CACHE_TTL = new LongConfigKey(
+            "geolocation.cacheTtl",
+            List.of(KeyType.CONFIG),
+            86400L);
+
+    /**
+     * Number of strongest cell towers and WiFi access points used for the cache fingerprint. Weaker ones are ignored,
+     * so small changes in visible network don't prevent a match. Default value is 3.
+     */
+    public static final ConfigKey<Integer> GEOLOCATION_CACHE_STRONGEST = new IntegerConfigKey(
+            "geolocation.cacheStrongest",
+            List.of(KeyType.CONFIG),
+            3);
+
+    /**
+     * Offline cell tower database in OpenCelliD CSV format, used before the geolocation provider or without one.
+     */
+    public static final ConfigKey<String> GEOLOCATION_CACHE_FILE = new StringConfigKey(
+            "geolocation.cacheFile",
+            List.of(KeyType.CONFIG));
+
     /**
      * Boolean flag to enable speed limit API to get speed limit values depending on location. Default value is false.
      */
@@ -1624,7 +1815,7 @@ public final class Keys {
             List.of(KeyType.CONFIG));
 
     /**
-     * Provider to use for speed limit. Available options: overpass. By default overpass is used.
+     * Provider to use for speed limit. Available options: overpass and tiles. By default overpass is used.
      */
     public static final ConfigKey<String> SPEED_LIMIT_TYPE = new StringConfigKey(
             "speedLimit.type",
@@ -1637,6 +1828,21 @@ public final class Keys {
             "speedLimit.url",
             List.of(KeyType.CONFIG));
 
+    /**
+     * Path to an OSM XML extract used by the tiles speed limit provider instead of downloading tiles.
+     */
+    public static final ConfigKey<String> SPEED_LIMIT_FILE = new StringConfigKey(
+            "speedLimit.file",
+            List.of(KeyType.CONFIG));
+
+    /**
+     * Maximum number of map tiles kept by the tiles speed limit provider. Default value is 1000.
+     */
+    public static final ConfigKey<Integer> SPEED_LIMIT_CACHE_SIZE = new IntegerConfigKey(
+            "speedLimit.cacheSize",
+            List.of(KeyType.CONFIG),
+            1000);
+
     /**
      * Override latitude sign / hemisphere. Useful in cases where value is incorrect because of device bug. Value can be
      * N for North or S for South.
@@ -16,6 +16,8 @@
  */
 package org.traccar.database;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.BaseProtocol;
 import org.traccar.ServerManager;
 import org.traccar.broadcast.BroadcastInterface;
@@ -38,17 +40,25 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Singleton
 public class CommandsManager implements BroadcastInterface {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandsManager.class);
+
     private final Storage storage;
     private final ServerManager serverManager;
     private final SmsManager smsManager;
     private final ConnectionManager connectionManager;
     private final BroadcastService broadcastService;
 
+    private final Set<Long> pendingDevices = ConcurrentHashMap.newKeySet();
+    private final boolean pendingLoaded;
+
     @Inject
     public CommandsManager(
             Storage storage, ServerManager serverManager, @Nullable SmsManager smsManager,
@@ -59,6 +69,22 @@ public class CommandsManager implements BroadcastInterface {
         this.connectionManager = connectionManager;
         this.broadcastService = broadcastService;
         broadcastService.registerListener(this);
+        pendingLoaded = loadPendingDevices();
+    }
+
+    private boolean loadPendingDevices() {
+        try {
+            storage.getObjects(QueuedCommand.class, new Request(new Columns.Include("rastreador_id")))
+                    .forEach(command -> pendingDevices.add(command.getRastreador_id()));
+            return true;
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to load queued commands", e);
+            return false;
+        }
+    }
+
+    private boolean hasQueuedCommands(long deviceId) {
+        return !pendingLoaded || pendingDevices.contains(deviceId);
     }
 
     public boolean sendCommand(Command command) throws Exception {
@@ -85,6 +111,7 @@ public class CommandsManager implements BroadcastInterface {
                 deviceSession.sendCommand(command);
             } else {
                 storage.addObject(QueuedCommand.fromCommand(command), new Request(new Columns.Exclude("id")));
+                pendingDevices.add(deviceId);
                 broadcastService.updateCommand(true, deviceId);
                 return false;
             }
@@ -97,17 +124,25 @@ public class CommandsManager implements BroadcastInterface {
     }
 
     public Collection<Command> readQueuedCommands(long deviceId, int count) {
+        if (!hasQueuedCommands(deviceId)) {
+            return Collections.emptyList();
+        }
+        pendingDevices.remove(deviceId);
         try {
             var commands = storage.getObjects(QueuedCommand.class, new Request(
                     new Columns.All(),
-                    new Condition.Equals("deviceId", deviceId),
+                    new Condition.Equals("rastreador_id", deviceId),
                     new Order("id", false, count)));
-            for (var command : commands) {
-                storage.removeObject(QueuedCommand.class, new Request(
-                        new Condition.Equals("id", command.getId())));
+            if (commands.size() >= count) {
+                pendingDevices.add(deviceId);
+            }
+            if (!commands.isEmpty()) {
+                storage.removeObject(QueuedCommand.class, new Request(new Condition.In(
+                        "id", commands.stream().map(QueuedCommand::getId).collect(Collectors.toList()))));
             }
             return commands.stream().map(QueuedCommand::toCommand).collect(Collectors.toList());
         } catch (StorageException e) {
+            pendingDevices.add(deviceId);
             throw new RuntimeException(e);
         }
     }
@@ -115,6 +150,7 @@ public class CommandsManager implements BroadcastInterface {
     @Override
     public void updateCommand(boolean local, long deviceId) {
         if (!local) {
+            pendingDevices.add(deviceId);
             DeviceSession deviceSession = connectionManager.getDeviceSession(deviceId);
             if (deviceSession != null && deviceSession.supportsLiveCommands()) {
                 for (Command command : readQueuedCommands(deviceId)) {
@@ -20,8 +20,12 @@ import io.netty.util.Timer;
 import io.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.broadcast.BroadcastInterface;
+import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
+import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
 import org.traccar.storage.Storage;
 import org.traccar.storage.StorageException;
@@ -31,12 +35,22 @@ import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Resolves device identifiers from an in-memory directory loaded on startup. The database is only queried for
+ * identifiers missing from the directory, and identifiers recently confirmed unknown are not queried again.
+ */
 @Singleton
-public class DeviceLookupService {
+public class DeviceLookupService implements BroadcastInterface, LifecycleObject {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DeviceLookupService.class);
 
@@ -44,10 +58,15 @@ public class DeviceLookupService {
     private static final long THROTTLE_MIN_MS = TimeUnit.MINUTES.toMillis(1);
     private static final long THROTTLE_MAX_MS = TimeUnit.MINUTES.toMillis(30);
 
+    private static final long UNKNOWN_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final int UNKNOWN_LIMIT = 10000;
+
     private final Storage storage;
     private final Timer timer;
+    private final ExecutorService executor;
 
     private final boolean throttlingEnabled;
+    private final long refreshInterval;
 
     private static class IdentifierInfo {
         private long lastQuery;
@@ -73,11 +92,152 @@ public class DeviceLookupService {
 
     private final Map<String, IdentifierInfo> identifierMap = new ConcurrentHashMap<>();
 
+    private final Map<String, Device> devicesByUniqueId = new ConcurrentHashMap<>();
+    private final Map<Long, String> uniqueIdsById = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> unknownIdentifiers = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > UNKNOWN_LIMIT;
+        }
+    };
+
     @Inject
-    public DeviceLookupService(Config config, Storage storage, Timer timer) {
+    public DeviceLookupService(
+            Config config, Storage storage, Timer timer, BroadcastService broadcastService) {
         this.storage = storage;
         this.timer = timer;
         throttlingEnabled = config.getBoolean(Keys.DATABASE_THROTTLE_UNKNOWN);
+        refreshInterval = config.getLong(Keys.DATABASE_DEVICE_REFRESH_INTERVAL);
+        executor = refreshInterval > 0 ? Executors.newSingleThreadExecutor() : null;
+        reload();
+        if (refreshInterval > 0) {
+            timer.newTimeout(this::refresh, refreshInterval, TimeUnit.SECONDS);
+        }
+        broadcastService.registerListener(this);
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void refresh(Timeout timeout) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                reload();
+            } finally {
+                timer.newTimeout(this::refresh, refreshInterval, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private void reload() {
+        try {
+            long time = System.currentTimeMillis();
+            Map<String, Device> devices = new HashMap<>();
+            for (Device device : storage.getObjects(Device.class, new Request(new Columns.All()))) {
+                if (device.getImei() != null) {
+                    devices.put(device.getImei(), device);
+                }
+            }
+            synchronized (devicesByUniqueId) {
+                devicesByUniqueId.keySet().retainAll(devices.keySet());
+                devicesByUniqueId.putAll(devices);
+                uniqueIdsById.clear();
+                devices.values().forEach(device -> uniqueIdsById.put(device.getId(), device.getImei()));
+            }
+            synchronized (unknownIdentifiers) {
+                unknownIdentifiers.keySet().removeAll(devices.keySet());
+            }
+            LOGGER.info("Loaded {} devices in {} ms", devices.size(), System.currentTimeMillis() - time);
+        } catch (StorageException e) {
+            LOGGER.warn("Device directory load error", e);
+        }
+    }
+
+    public void update(Device device) {
+        synchronized (devicesByUniqueId) {
+            String previous = uniqueIdsById.remove(device.getId());
+            if (previous != null) {
+                devicesByUniqueId.remove(previous);
+            }
+            if (device.getImei() != null) {
+                devicesByUniqueId.put(device.getImei(), device);
+                uniqueIdsById.put(device.getId(), device.getImei());
+            }
+        }
+        if (device.getImei() != null) {
+            synchronized (unknownIdentifiers) {
+                unknownIdentifiers.remove(device.getImei());
+            }
+        }
+    }
+
+    private void remove(long deviceId) {
+        synchronized (devicesByUniqueId) {
+            String previous = uniqueIdsById.remove(deviceId);
+            if (previous != null) {
+                devicesByUniqueId.remove(previous);
+            }
+        }
+    }
+
+    private void reload(long deviceId) {
+        try {
+            Device device = storage.getObject(Device.class, new Request(
+                    new Columns.All(), new Condition.Equals("id", deviceId)));
+            if (device != null) {
+                update(device);
+            } else {
+                remove(deviceId);
+            }
+        } catch (StorageException e) {
+            LOGGER.warn("Device directory update error", e);
+        }
+    }
+
+    @Override
+    public void invalidateObject(boolean local, Class<? extends BaseModel> clazz, long id) {
+        if (clazz.equals(Device.class)) {
+            reload(id);
+        }
+    }
+
+    @Override
+    public void invalidatePermission(
+            boolean local,
+            Class<? extends BaseModel> clazz1, long id1,
+            Class<? extends BaseModel> clazz2, long id2) {
+        if (clazz2.equals(Device.class)) {
+            reload(id2);
+        }
+    }
+
+    private boolean isKnownUnknown(String uniqueId) {
+        synchronized (unknownIdentifiers) {
+            Long expiration = unknownIdentifiers.get(uniqueId);
+            if (expiration != null && System.currentTimeMillis() >= expiration) {
+                unknownIdentifiers.remove(uniqueId);
+                return false;
+            }
+            return expiration != null;
+        }
+    }
+
+    private void markUnknown(String uniqueId) {
+        synchronized (unknownIdentifiers) {
+            unknownIdentifiers.put(uniqueId, System.currentTimeMillis() + UNKNOWN_TIMEOUT_MS);
+        }
     }
 
     private synchronized boolean isThrottled(String uniqueId) {
@@ -115,27 +275,58 @@ public class DeviceLookupService {
         }
     }
 
+    /**
+     * Returns the device matching the first identifier that is known, either from the directory or from the database,
+     * so identifiers keep the same priority as when each one was queried in turn.
+     */
     public Device lookup(String[] uniqueIds) {
-        Device device = null;
-        try {
-            for (String uniqueId : uniqueIds) {
-                if (!isThrottled(uniqueId)) {
-                    device = storage.getObject(Device.class, new Request(
-                            new Columns.All(), new Condition.Equals("imei", uniqueId)));
-                    if (device != null) {
-                        lookupSucceeded(uniqueId);
-                        break;
-                    } else {
-                        lookupFailed(uniqueId);
-                    }
-                } else {
-                    LOGGER.debug("Device lookup throttled {}", uniqueId);
+        List<String> missing = new ArrayList<>(uniqueIds.length);
+        Device known = null;
+        for (String uniqueId : uniqueIds) {
+            Device device = devicesByUniqueId.get(uniqueId);
+            if (device != null) {
+                if (missing.isEmpty()) {
+                    return device;
                 }
+                known = device;
+                break;
+            } else if (isKnownUnknown(uniqueId)) {
+                LOGGER.debug("Device lookup skipped {}", uniqueId);
+            } else if (isThrottled(uniqueId)) {
+                LOGGER.debug("Device lookup throttled {}", uniqueId);
+            } else {
+                missing.add(uniqueId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Device> found = new HashMap<>();
+        try {
+            Condition condition = missing.size() == 1
+                    ? new Condition.Equals("imei", missing.get(0)) : new Condition.In("imei", missing);
+            for (Device device : storage.getObjects(Device.class, new Request(new Columns.All(), condition))) {
+                found.put(device.getImei(), device);
+                update(device);
             }
         } catch (StorageException e) {
             LOGGER.warn("Find device error", e);
+            return known;
+        }
+
+        for (String uniqueId : missing) {
+            Device device = found.get(uniqueId);
+            if (device != null) {
+                lookupSucceeded(uniqueId);
+                return device;
+            } else {
+                markUnknown(uniqueId);
+                lookupFailed(uniqueId);
+            }
         }
-        return device;
+        return known;
     }
 
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind for the latest position reference of devices. Only the newest position id of each device is kept and
+ * all pending references are written in one batch per interval.
+ */
+@Singleton
+public class LatestPositionWriter implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatestPositionWriter.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Storage storage;
+    private final long interval;
+    private final ScheduledExecutorService executor;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @Inject
+    public LatestPositionWriter(Config config, Storage storage) {
+        this.storage = storage;
+        interval = config.getLong(Keys.DATABASE_LATEST_POSITION_INTERVAL);
+        executor = interval > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
+    }
+
+    public long getUpdates() {
+        return updates.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public void update(long deviceId, long positionId) throws StorageException {
+        updates.incrementAndGet();
+        if (executor != null) {
+            if (pending.put(deviceId, positionId) != null) {
+                coalesced.incrementAndGet();
+            }
+        } else {
+            Device device = new Device();
+            device.setId(deviceId);
+            device.setRastreador_posicao_id(positionId);
+            storage.updateObject(device, new Request(
+                    new Columns.Include("rastreador_posicao_id"),
+                    new Condition.Equals("id", deviceId)));
+        }
+    }
+
+    private void flush() {
+        List<Device> devices = new ArrayList<>();
+        for (Long deviceId : pending.keySet()) {
+            Long positionId = pending.remove(deviceId);
+            if (positionId != null) {
+                Device device = new Device();
+                device.setId(deviceId);
+                device.setRastreador_posicao_id(positionId);
+                devices.add(device);
+            }
+        }
+        if (!devices.isEmpty()) {
+            try {
+                storage.updateObjects(devices, new Columns.Include("rastreador_posicao_id"));
+            } catch (StorageException | RuntimeException e) {
+                LOGGER.warn("Failed to update latest positions", e);
+                devices.forEach(device -> pending.putIfAbsent(device.getId(), device.getRastreador_posicao_id()));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (executor != null) {
+            executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            flush();
+            LOGGER.info("Latest position updates: {}, writes saved: {}", updates.get(), coalesced.get());
+        }
+    }
+
+}
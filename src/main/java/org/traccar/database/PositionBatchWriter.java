@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Position;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Collects positions from all connections and stores them in batches, one transaction per batch. A batch is written
+ * when the configured window expires or when it reaches the size limit. Callbacks are invoked in the order positions
+ * were submitted, after the generated ids are assigned. Positions that are not stored still wait for their turn, so
+ * they can't overtake earlier positions.
+ */
+@Singleton
+public class PositionBatchWriter implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionBatchWriter.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private static final class Entry {
+
+        private final Position position;
+        private final boolean store;
+        private final Runnable callback;
+
+        private Entry(Position position, boolean store, Runnable callback) {
+            this.position = position;
+            this.store = store;
+            this.callback = callback;
+        }
+
+    }
+
+    private final Storage storage;
+    private final long window;
+    private final int size;
+    private final ScheduledExecutorService executor;
+
+    private List<Entry> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduled;
+
+    @Inject
+    public PositionBatchWriter(Config config, Storage storage) {
+        this.storage = storage;
+        window = config.getLong(Keys.DATABASE_BATCH_WINDOW);
+        size = config.getInteger(Keys.DATABASE_BATCH_SIZE);
+        executor = window > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public void write(Position position, boolean store, Runnable callback) {
+        List<Entry> batch = null;
+        synchronized (this) {
+            pending.add(new Entry(position, store, callback));
+            if (pending.size() >= size) {
+                batch = takePending();
+            } else if (scheduled == null) {
+                try {
+                    scheduled = executor.schedule(this::flushPending, window, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    batch = takePending();
+                }
+            }
+        }
+        if (batch != null) {
+            List<Entry> full = batch;
+            try {
+                executor.execute(() -> flush(full));
+            } catch (RejectedExecutionException e) {
+                flush(full);
+            }
+        }
+    }
+
+    private synchronized List<Entry> takePending() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        List<Entry> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void flushPending() {
+        flush(takePending());
+    }
+
+    private void flush(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Position> positions = batch.stream()
+                .filter(entry -> entry.store)
+                .map(entry -> entry.position)
+                .collect(Collectors.toList());
+        if (!positions.isEmpty()) {
+            store(positions);
+        }
+
+        for (Entry entry : batch) {
+            try {
+                entry.callback.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Position callback error", e);
+            }
+        }
+    }
+
+    private void store(List<Position> positions) {
+        try {
+            long time = System.currentTimeMillis();
+            long[] ids = storage.addObjects(positions, new Request(new Columns.Exclude("id")));
+            for (int i = 0; i < ids.length; i++) {
+                positions.get(i).setId(ids[i]);
+            }
+            LOGGER.debug("Stored {} positions in {} ms", positions.size(), System.currentTimeMillis() - time);
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to store positions", e);
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Position batch writer did not finish");
+            }
+            flushPending();
+        }
+    }
+
+}
@@ -22,8 +22,8 @@ import javax.ws.rs.client.Client;
 
 public class BingMapsGeocoder extends JsonGeocoder {
 
-    public BingMapsGeocoder(Client client, String url, String key, int cacheSize, AddressFormat addressFormat) {
-        super(client, url + "/Locations/%f,%f?key=" + key + "&include=ciso2", cacheSize, addressFormat);
+    public BingMapsGeocoder(Client client, String url, String key, AddressFormat addressFormat) {
+        super(client, url + "/Locations/%f,%f?key=" + key + "&include=ciso2", addressFormat);
     }
 
     @Override
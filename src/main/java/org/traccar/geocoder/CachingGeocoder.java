@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.database.StatisticsManager;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Geocoder wrapper answering from the shared cache. Concurrent lookups of the same cache cell are coalesced into a
+ * single request to the underlying geocoder.
+ */
+public class CachingGeocoder implements Geocoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingGeocoder.class);
+
+    private final Geocoder geocoder;
+    private final GeocoderCache cache;
+
+    private final Map<Long, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+
+    public CachingGeocoder(Geocoder geocoder, GeocoderCache cache) {
+        this.geocoder = geocoder;
+        this.cache = cache;
+    }
+
+    @Override
+    public void setStatisticsManager(StatisticsManager statisticsManager) {
+        geocoder.setStatisticsManager(statisticsManager);
+    }
+
+    private void complete(long key, CompletableFuture<String> future, String address) {
+        if (address != null) {
+            cache.put(key, address);
+        }
+        pending.remove(key, future);
+        future.complete(address);
+    }
+
+    private void fail(long key, CompletableFuture<String> future, Throwable error) {
+        pending.remove(key, future);
+        future.completeExceptionally(error);
+    }
+
+    private String await(CompletableFuture<String> future, ReverseGeocoderCallback callback) {
+        if (callback != null) {
+            future.whenComplete((address, error) -> {
+                if (address != null) {
+                    callback.onSuccess(address);
+                } else {
+                    callback.onFailure(error != null ? error : new GeocoderException("Empty address"));
+                }
+            });
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            LOGGER.warn("Geocoder request error", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, ReverseGeocoderCallback callback) {
+        long key = cache.getKey(latitude, longitude);
+        String cachedAddress = cache.get(key);
+        if (cachedAddress != null) {
+            if (callback != null) {
+                callback.onSuccess(cachedAddress);
+            }
+            return cachedAddress;
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = pending.putIfAbsent(key, future);
+        if (existing != null) {
+            cache.recordCoalesced();
+            return await(existing, callback);
+        }
+        cache.recordMiss();
+
+        if (callback != null) {
+            try {
+                geocoder.getAddress(latitude, longitude, new ReverseGeocoderCallback() {
+                    @Override
+                    public void onSuccess(String address) {
+                        complete(key, future, address);
+                        callback.onSuccess(address);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        fail(key, future, e);
+                        callback.onFailure(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (future.isDone()) {
+                    throw e;
+                }
+                fail(key, future, e);
+                callback.onFailure(e);
+            }
+            return null;
+        }
+
+        String address = null;
+        try {
+            address = geocoder.getAddress(latitude, longitude, null);
+        } finally {
+            complete(key, future, address);
+        }
+        return address;
+    }
+
+}
@@ -32,8 +32,8 @@ public class GeoapifyGeocoder extends JsonGeocoder {
         return url;
     }
 
-    public GeoapifyGeocoder(Client client, String key, String language, int cacheSize, AddressFormat addressFormat) {
-        super(client, formatUrl(key, language), cacheSize, addressFormat);
+    public GeoapifyGeocoder(Client client, String key, String language, AddressFormat addressFormat) {
+        super(client, formatUrl(key, language), addressFormat);
     }
 
     @Override
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Addresses keyed by coordinates rounded to the configured precision, so nearby positions share an entry. Entries
+ * expire after the configured time. Reads don't take any lock, they only record the access time of the entry, and the
+ * least recently used entries are evicted in batches by writes that exceed the size limit. Optionally the cache is
+ * saved to a file and restored on startup.
+ */
+@Singleton
+public class GeocoderCache implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeocoderCache.class);
+
+    private static final long CHECKPOINT_INTERVAL_MINUTES = 10;
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    public static class Entry {
+
+        private volatile long accessed;
+
+        private String address;
+
+        public String getAddress() {
+            return address;
+        }
+
+        public void setAddress(String address) {
+            this.address = address;
+        }
+
+        private long time;
+
+        public long getTime() {
+            return time;
+        }
+
+        public void setTime(long time) {
+            this.time = time;
+        }
+
+    }
+
+    /**
+     * Contents of the cache file. Keys depend on the precision, so entries saved with another one are discarded.
+     */
+    public static class Snapshot {
+
+        private int precision;
+
+        public int getPrecision() {
+            return precision;
+        }
+
+        public void setPrecision(int precision) {
+            this.precision = precision;
+        }
+
+        private Map<Long, Entry> entries;
+
+        public Map<Long, Entry> getEntries() {
+            return entries;
+        }
+
+        public void setEntries(Map<Long, Entry> entries) {
+            this.entries = entries;
+        }
+
+    }
+
+    /**
+     * Entry with its access time copied, so the order doesn't change while sorting.
+     */
+    private static final class Candidate {
+
+        private final long key;
+        private final Entry entry;
+        private final long accessed;
+
+        private Candidate(long key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.accessed = entry.accessed;
+        }
+
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int size;
+    private final int precision;
+    private final double scale;
+    private final long ttl;
+    private final Path file;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public GeocoderCache(Config config, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        size = config.getInteger(Keys.GEOCODER_CACHE_SIZE);
+        precision = Math.min(config.getInteger(Keys.GEOCODER_CACHE_PRECISION), 6);
+        scale = Math.pow(10, precision);
+        ttl = TimeUnit.SECONDS.toMillis(config.getLong(Keys.GEOCODER_CACHE_TTL));
+        file = config.hasKey(Keys.GEOCODER_CACHE_FILE) ? Paths.get(config.getString(Keys.GEOCODER_CACHE_FILE)) : null;
+        restore();
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    public long getKey(double latitude, double longitude) {
+        long latitudeIndex = Math.round(latitude * scale);
+        long longitudeIndex = Math.round(longitude * scale);
+        return (latitudeIndex << 32) | (longitudeIndex & 0xffffffffL);
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttl > 0 && System.currentTimeMillis() - entry.getTime() > ttl;
+    }
+
+    /**
+     * Cached address, or null if missing or expired. Only hits are counted, the caller records what happens on a miss.
+     */
+    public String get(long key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (isExpired(entry)) {
+                entries.remove(key, entry);
+                return null;
+            }
+            entry.accessed = System.nanoTime();
+            hits.incrementAndGet();
+            return entry.getAddress();
+        }
+        return null;
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordCoalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    public void put(long key, String address) {
+        Entry entry = new Entry();
+        entry.setAddress(address);
+        entry.setTime(System.currentTimeMillis());
+        put(key, entry);
+    }
+
+    void put(long key, Entry entry) {
+        entry.accessed = System.nanoTime();
+        entries.put(key, entry);
+        if (entries.size() > size) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes expired entries and, if still over the limit, the least recently used ones. A few more than needed are
+     * removed, so the sort is not repeated on every write.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            if (entries.size() <= size) {
+                return;
+            }
+            entries.entrySet().removeIf(entry -> isExpired(entry.getValue()));
+            int target = size - size / EVICTION_BATCH_DIVISOR;
+            if (entries.size() > target) {
+                List<Candidate> candidates = new ArrayList<>(entries.size());
+                entries.forEach((key, entry) -> candidates.add(new Candidate(key, entry)));
+                candidates.sort(Comparator.comparingLong(candidate -> candidate.accessed));
+                for (int i = 0; i < candidates.size() && entries.size() > target; i++) {
+                    Candidate candidate = candidates.get(i);
+                    if (entries.remove(candidate.key, candidate.entry)) {
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private void restore() {
+        if (isEnabled() && file != null && Files.exists(file)) {
+            try {
+                Snapshot snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+                if (snapshot.getPrecision() != precision || snapshot.getEntries() == null) {
+                    LOGGER.info("Geocoder cache file discarded, precision changed");
+                    return;
+                }
+                snapshot.getEntries().entrySet().stream()
+                        .filter(entry -> !isExpired(entry.getValue()))
+                        .sorted(Map.Entry.comparingByValue((a, b) -> Long.compare(a.getTime(), b.getTime())))
+                        .forEach(entry -> put(entry.getKey(), entry.getValue()));
+                LOGGER.info("Restored {} geocoder cache entries", size());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to restore geocoder cache", e);
+            }
+        }
+    }
+
+    private synchronized void checkpoint() {
+        if (file == null) {
+            return;
+        }
+        Map<Long, Entry> saved = new HashMap<>();
+        entries.forEach((key, entry) -> {
+            if (!isExpired(entry)) {
+                saved.put(key, entry);
+            }
+        });
+        Snapshot snapshot = new Snapshot();
+        snapshot.setPrecision(precision);
+        snapshot.setEntries(saved);
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), snapshot);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Saved {} geocoder cache entries", saved.size());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save geocoder cache", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (isEnabled() && file != null) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+            executor.scheduleWithFixedDelay(
+                    this::checkpoint, CHECKPOINT_INTERVAL_MINUTES, CHECKPOINT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (isEnabled()) {
+            checkpoint();
+            LOGGER.info("Geocoder cache hits: {}, misses: {}, coalesced: {}, evictions: {}",
+                    hits.get(), misses.get(), coalesced.get(), evictions.get());
+        }
+    }
+
+}
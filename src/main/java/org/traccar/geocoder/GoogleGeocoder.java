@@ -33,8 +33,8 @@ public class GoogleGeocoder extends JsonGeocoder {
         return url;
     }
 
-    public GoogleGeocoder(Client client, String key, String language, int cacheSize, AddressFormat addressFormat) {
-        super(client, formatUrl(key, language), cacheSize, addressFormat);
+    public GoogleGeocoder(Client client, String key, String language, AddressFormat addressFormat) {
+        super(client, formatUrl(key, language), addressFormat);
     }
 
     @Override
@@ -37,8 +37,8 @@ public class HereGeocoder extends JsonGeocoder {
 
     public HereGeocoder(
             Client client, String url, String id, String key, String language,
-            int cacheSize, AddressFormat addressFormat) {
-        super(client, formatUrl(url, id, key, language), cacheSize, addressFormat);
+            AddressFormat addressFormat) {
+        super(client, formatUrl(url, id, key, language), addressFormat);
     }
 
     @Override
@@ -23,10 +23,6 @@ import javax.json.JsonObject;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.InvocationCallback;
-import java.util.AbstractMap;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 public abstract class JsonGeocoder implements Geocoder {
 
@@ -37,20 +33,10 @@ public abstract class JsonGeocoder implements Geocoder {
     private final AddressFormat addressFormat;
     private StatisticsManager statisticsManager;
 
-    private Map<Map.Entry<Double, Double>, String> cache;
-
-    public JsonGeocoder(Client client, String url, final int cacheSize, AddressFormat addressFormat) {
+    public JsonGeocoder(Client client, String url, AddressFormat addressFormat) {
         this.client = client;
         this.url = url;
         this.addressFormat = addressFormat;
-        if (cacheSize > 0) {
-            this.cache = Collections.synchronizedMap(new LinkedHashMap<>() {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry eldest) {
-                    return size() > cacheSize;
-                }
-            });
-        }
     }
 
     @Override
@@ -65,15 +51,11 @@ public abstract class JsonGeocoder implements Geocoder {
         return null;
     }
 
-    private String handleResponse(
-            double latitude, double longitude, JsonObject json, ReverseGeocoderCallback callback) {
+    private String handleResponse(JsonObject json, ReverseGeocoderCallback callback) {
 
         Address address = parseAddress(json);
         if (address != null) {
             String formattedAddress = addressFormat.format(address);
-            if (cache != null) {
-                cache.put(new AbstractMap.SimpleImmutableEntry<>(latitude, longitude), formattedAddress);
-            }
             if (callback != null) {
                 callback.onSuccess(formattedAddress);
             }
@@ -93,16 +75,6 @@ public abstract class JsonGeocoder implements Geocoder {
     public String getAddress(
             final double latitude, final double longitude, final ReverseGeocoderCallback callback) {
 
-        if (cache != null) {
-            String cachedAddress = cache.get(new AbstractMap.SimpleImmutableEntry<>(latitude, longitude));
-            if (cachedAddress != null) {
-                if (callback != null) {
-                    callback.onSuccess(cachedAddress);
-                }
-                return cachedAddress;
-            }
-        }
-
         if (statisticsManager != null) {
             statisticsManager.registerGeocoderRequest();
         }
@@ -113,7 +85,7 @@ public abstract class JsonGeocoder implements Geocoder {
             request.async().get(new InvocationCallback<JsonObject>() {
                 @Override
                 public void completed(JsonObject json) {
-                    handleResponse(latitude, longitude, json, callback);
+                    handleResponse(json, callback);
                 }
 
                 @Override
@@ -123,7 +95,7 @@ public abstract class JsonGeocoder implements Geocoder {
             });
         } else {
             try {
-                return handleResponse(latitude, longitude, request.get(JsonObject.class), null);
+                return handleResponse(request.get(JsonObject.class), null);
             } catch (WebApplicationException e) {
                 LOGGER.warn("Geocoder network error", e);
             }
@@ -30,8 +30,8 @@ public class MapQuestGeocoder extends JsonGeocoder {
         return url;
     }
 
-    public MapQuestGeocoder(Client client, String url, String key, int cacheSize, AddressFormat addressFormat) {
-        super(client, formatUrl(url, key), cacheSize, addressFormat);
+    public MapQuestGeocoder(Client client, String url, String key, AddressFormat addressFormat) {
+        super(client, formatUrl(url, key), addressFormat);
     }
 
     @Override
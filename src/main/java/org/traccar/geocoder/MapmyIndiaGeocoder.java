@@ -21,8 +21,8 @@ import javax.ws.rs.client.Client;
 
 public class MapmyIndiaGeocoder extends JsonGeocoder {
 
-    public MapmyIndiaGeocoder(Client client, String url, String key, int cacheSize, AddressFormat addressFormat) {
-        super(client, url + "/" + key + "/rev_geocode?lat=%f&lng=%f", cacheSize, addressFormat);
+    public MapmyIndiaGeocoder(Client client, String url, String key, AddressFormat addressFormat) {
+        super(client, url + "/" + key + "/rev_geocode?lat=%f&lng=%f", addressFormat);
     }
 
     @Override
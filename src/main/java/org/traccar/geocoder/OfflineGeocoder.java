@@ -0,0 +1,272 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.database.StatisticsManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reverse geocoder answering from a local places file in GeoNames tab-separated format, so lookups don't go to the
+ * network. Places are kept in a grid index and the nearest one is returned. The file is checked for changes
+ * periodically and reloaded in the background.
+ */
+public class OfflineGeocoder implements Geocoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineGeocoder.class);
+
+    private static final double CELL_SIZE = 0.1;
+    private static final int LONGITUDE_CELLS = (int) Math.round(360 / CELL_SIZE);
+    private static final int RING_LIMIT = 20;
+    private static final long CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final class Place {
+
+        private final double latitude;
+        private final double longitude;
+        private final String address;
+
+        private Place(double latitude, double longitude, String address) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.address = address;
+        }
+
+        private long getCell() {
+            return cellKey(cellIndex(latitude), longitudeIndex(cellIndex(longitude)));
+        }
+
+    }
+
+    private static final class PlaceIndex {
+
+        private final long[] cells;
+        private final int[] offsets;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final String[] addresses;
+
+        private PlaceIndex(List<Place> places) {
+            places.sort(Comparator.comparingLong(Place::getCell));
+            latitudes = new double[places.size()];
+            longitudes = new double[places.size()];
+            addresses = new String[places.size()];
+            long[] cells = new long[places.size()];
+            int[] offsets = new int[places.size() + 1];
+            int count = 0;
+            for (int i = 0; i < places.size(); i++) {
+                Place place = places.get(i);
+                latitudes[i] = place.latitude;
+                longitudes[i] = place.longitude;
+                addresses[i] = place.address;
+                long cell = place.getCell();
+                if (count == 0 || cells[count - 1] != cell) {
+                    cells[count] = cell;
+                    offsets[count] = i;
+                    count += 1;
+                }
+            }
+            offsets[count] = places.size();
+            this.cells = Arrays.copyOf(cells, count);
+            this.offsets = Arrays.copyOf(offsets, count + 1);
+        }
+
+        private String find(double latitude, double longitude) {
+            double scale = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+            int latitudeIndex = cellIndex(latitude);
+            int longitudeIndex = cellIndex(longitude);
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int ring = 0; ring <= RING_LIMIT; ring++) {
+                for (int i = latitudeIndex - ring; i <= latitudeIndex + ring; i++) {
+                    for (int j = longitudeIndex - ring; j <= longitudeIndex + ring; j++) {
+                        if (Math.abs(i - latitudeIndex) != ring && Math.abs(j - longitudeIndex) != ring) {
+                            continue;
+                        }
+                        int cell = Arrays.binarySearch(cells, cellKey(i, longitudeIndex(j)));
+                        if (cell >= 0) {
+                            for (int k = offsets[cell]; k < offsets[cell + 1]; k++) {
+                                double dy = latitudes[k] - latitude;
+                                double dx = longitudeDelta(longitudes[k], longitude) * scale;
+                                double distance = dx * dx + dy * dy;
+                                if (distance < bestDistance) {
+                                    bestDistance = distance;
+                                    best = k;
+                                }
+                            }
+                        }
+                    }
+                }
+                double bound = ring * CELL_SIZE * scale;
+                if (best >= 0 && bestDistance <= bound * bound) {
+                    break;
+                }
+            }
+            return best >= 0 ? addresses[best] : null;
+        }
+
+    }
+
+    private final Path file;
+    private final Locale locale;
+    private final AddressFormat addressFormat;
+    private final Map<String, String> countries = new ConcurrentHashMap<>();
+
+    private volatile PlaceIndex index;
+    private volatile FileTime modified;
+    private volatile long nextCheck;
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    public OfflineGeocoder(String file, String language, AddressFormat addressFormat) {
+        this.file = Paths.get(file);
+        this.locale = language != null ? Locale.forLanguageTag(language) : Locale.ENGLISH;
+        this.addressFormat = addressFormat;
+        load();
+    }
+
+    @Override
+    public void setStatisticsManager(StatisticsManager statisticsManager) {
+    }
+
+    private static int cellIndex(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    /**
+     * Wraps the longitude cell index around the antimeridian, so cells on both sides of it are neighbours.
+     */
+    private static int longitudeIndex(int index) {
+        return Math.floorMod(index + LONGITUDE_CELLS / 2, LONGITUDE_CELLS) - LONGITUDE_CELLS / 2;
+    }
+
+    private static double longitudeDelta(double first, double second) {
+        double delta = first - second;
+        if (delta > 180) {
+            delta -= 360;
+        } else if (delta < -180) {
+            delta += 360;
+        }
+        return delta;
+    }
+
+    private static long cellKey(int latitudeIndex, int longitudeIndex) {
+        return ((long) latitudeIndex << 32) | (longitudeIndex & 0xffffffffL);
+    }
+
+    private String getCountryName(String countryCode) {
+        return countries.computeIfAbsent(countryCode, code -> {
+            String name = new Locale("", code).getDisplayCountry(locale);
+            return name.isEmpty() ? code : name;
+        });
+    }
+
+    private Place parsePlace(String line) {
+        String[] values = line.split("\t");
+        if (values.length < 6 || values.length > 6 && !values[6].isEmpty() && !values[6].equals("P")) {
+            return null;
+        }
+        Address address = new Address();
+        address.setSettlement(values[1]);
+        if (values.length > 8 && !values[8].isEmpty()) {
+            address.setCountry(getCountryName(values[8]));
+        }
+        address.setFormattedAddress(values[1]);
+        return new Place(
+                Double.parseDouble(values[4]), Double.parseDouble(values[5]), addressFormat.format(address));
+    }
+
+    private void load() {
+        try {
+            long time = System.currentTimeMillis();
+            FileTime fileModified = Files.getLastModifiedTime(file);
+            List<Place> places = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        Place place = parsePlace(line);
+                        if (place != null) {
+                            places.add(place);
+                        }
+                    } catch (NumberFormatException e) {
+                        LOGGER.debug("Skipped geocoder place {}", line);
+                    }
+                }
+            }
+            index = new PlaceIndex(places);
+            modified = fileModified;
+            LOGGER.info("Loaded {} geocoder places in {} ms", places.size(), System.currentTimeMillis() - time);
+        } catch (IOException e) {
+            LOGGER.warn("Geocoder places load error", e);
+        }
+    }
+
+    private void checkModified() {
+        long now = System.currentTimeMillis();
+        if (now < nextCheck) {
+            return;
+        }
+        nextCheck = now + CHECK_INTERVAL;
+        try {
+            if (!Files.getLastModifiedTime(file).equals(modified) && loading.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        load();
+                    } finally {
+                        loading.set(false);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Geocoder places check error", e);
+        }
+    }
+
+    @Override
+    public String getAddress(double latitude, double longitude, ReverseGeocoderCallback callback) {
+        checkModified();
+        PlaceIndex index = this.index;
+        String address = index != null ? index.find(latitude, longitude) : null;
+        if (callback != null) {
+            if (address != null) {
+                callback.onSuccess(address);
+            } else {
+                callback.onFailure(new GeocoderException("No places nearby"));
+            }
+            return null;
+        }
+        return address;
+    }
+
+}
@@ -50,6 +50,16 @@ public class GeofenceCircle extends GeofenceGeometry {
         return distanceFromCenter(latitude, longitude) <= radius;
     }
 
+    @Override
+    public double distanceToBoundary(Config config, Geofence geofence, double latitude, double longitude) {
+        return Math.abs(distanceFromCenter(latitude, longitude) - radius);
+    }
+
+    @Override
+    public double[] getBounds(Config config, Geofence geofence) {
+        return getBounds(new double[] {centerLatitude}, new double[] {centerLongitude}, radius);
+    }
+
     @Override
     public double calculateArea() {
         return Math.PI * radius * radius;
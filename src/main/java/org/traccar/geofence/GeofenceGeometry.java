@@ -22,8 +22,46 @@ import java.text.ParseException;
 
 public abstract class GeofenceGeometry {
 
+    private static final double METERS_PER_DEGREE = 111320;
+
     public abstract boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude);
 
+    /**
+     * Distance in meters from the point to the nearest point where containment can change. Moving a shorter distance
+     * can't change the result of {@link #containsPoint}.
+     */
+    public abstract double distanceToBoundary(Config config, Geofence geofence, double latitude, double longitude);
+
+    /**
+     * Bounding box containing all points that match the geometry, as minimum latitude, minimum longitude, maximum
+     * latitude and maximum longitude.
+     */
+    public abstract double[] getBounds(Config config, Geofence geofence);
+
+    protected static double[] getBounds(double[] latitudes, double[] longitudes, double margin) {
+        double minLat = Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double maxLon = -Double.MAX_VALUE;
+        for (int i = 0; i < latitudes.length; i++) {
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+        double latMargin = margin / METERS_PER_DEGREE;
+        double lonMargin = latMargin / Math.max(
+                Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat)) + latMargin)), 0.01);
+        minLon -= lonMargin;
+        maxLon += lonMargin;
+        if (minLon < -180 || maxLon > 180) {
+            minLon = -180;
+            maxLon = 180;
+        }
+        return new double[] {
+                Math.max(minLat - latMargin, -90), minLon, Math.min(maxLat + latMargin, 90), maxLon};
+    }
+
     public abstract double calculateArea();
 
     public abstract String toWkt();
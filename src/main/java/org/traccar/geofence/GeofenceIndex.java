@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geofence;
+
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grid index of geofence bounding boxes shared by all devices. Lookups only return geofences whose bounding box
+ * contains the point, so exact geometry checks are limited to a few candidates. Geofences covering too many cells
+ * are kept in a separate list that is always checked.
+ */
+public class GeofenceIndex {
+
+    private static final double CELL_SIZE = 0.05;
+    private static final int CELL_LIMIT = 1024;
+
+    private static final class Entry {
+
+        private final Geofence geofence;
+        private final double[] bounds;
+
+        private Entry(Geofence geofence, double[] bounds) {
+            this.geofence = geofence;
+            this.bounds = bounds;
+        }
+
+        private boolean contains(double latitude, double longitude) {
+            return latitude >= bounds[0] && longitude >= bounds[1]
+                    && latitude <= bounds[2] && longitude <= bounds[3];
+        }
+
+    }
+
+    private final Config config;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> cells = new ConcurrentHashMap<>();
+    private volatile long[] large = new long[0];
+    private volatile long version;
+
+    public GeofenceIndex(Config config) {
+        this.config = config;
+    }
+
+    private static int cellIndex(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    public static long getCellKey(double latitude, double longitude) {
+        return cellKey(cellIndex(latitude), cellIndex(longitude));
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+
+    private static boolean isLarge(double[] bounds) {
+        long latCells = cellIndex(bounds[2]) - cellIndex(bounds[0]) + 1;
+        long lonCells = cellIndex(bounds[3]) - cellIndex(bounds[1]) + 1;
+        return latCells * lonCells > CELL_LIMIT;
+    }
+
+    private static long[] add(long[] ids, long id) {
+        long[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        long[] result = Arrays.stream(ids).filter(value -> value != id).toArray();
+        return result.length > 0 ? result : null;
+    }
+
+    private void index(long id, double[] bounds, boolean insert) {
+        if (isLarge(bounds)) {
+            large = insert ? add(large, id) : Arrays.stream(large).filter(value -> value != id).toArray();
+            return;
+        }
+        for (int latIndex = cellIndex(bounds[0]); latIndex <= cellIndex(bounds[2]); latIndex++) {
+            for (int lonIndex = cellIndex(bounds[1]); lonIndex <= cellIndex(bounds[3]); lonIndex++) {
+                long key = cellKey(latIndex, lonIndex);
+                if (insert) {
+                    cells.compute(key, (k, ids) -> ids != null ? add(ids, id) : new long[] {id});
+                } else {
+                    cells.computeIfPresent(key, (k, ids) -> remove(ids, id));
+                }
+            }
+        }
+    }
+
+    public synchronized void update(Geofence geofence) {
+        if (geofence.getGeometry() == null) {
+            remove(geofence.getId());
+            return;
+        }
+        double[] bounds = geofence.getGeometry().getBounds(config, geofence);
+        Entry previous = entries.put(geofence.getId(), new Entry(geofence, bounds));
+        if (previous == null || !Arrays.equals(previous.bounds, bounds)) {
+            version += 1;
+            if (previous != null) {
+                index(geofence.getId(), previous.bounds, false);
+            }
+            index(geofence.getId(), bounds, true);
+        } else if (!Objects.equals(previous.geofence.getArea(), geofence.getArea())) {
+            version += 1;
+        }
+    }
+
+    public synchronized void remove(long geofenceId) {
+        Entry previous = entries.remove(geofenceId);
+        if (previous != null) {
+            version += 1;
+            index(geofenceId, previous.bounds, false);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Incremented when a geofence is added, removed or changes its area, so results derived from the index can be
+     * checked for staleness.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Geofences with a bounding box containing the point. Geometry still has to be checked by the caller.
+     */
+    public List<Geofence> find(double latitude, double longitude) {
+        return find(latitude, longitude, true);
+    }
+
+    /**
+     * All geofences that can contain any point of the cell containing the given point.
+     */
+    public List<Geofence> findCell(double latitude, double longitude) {
+        return find(latitude, longitude, false);
+    }
+
+    private List<Geofence> find(double latitude, double longitude, boolean checkBounds) {
+        long[] cellIds = cells.get(getCellKey(latitude, longitude));
+        long[] largeIds = large;
+        if (cellIds == null && largeIds.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Geofence> result = new ArrayList<>();
+        for (long[] ids : new long[][] {cellIds, largeIds}) {
+            if (ids != null) {
+                for (long id : ids) {
+                    Entry entry = entries.get(id);
+                    if (entry != null && (!checkBounds || entry.contains(latitude, longitude))) {
+                        result.add(entry.geofence);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
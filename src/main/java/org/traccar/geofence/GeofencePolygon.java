@@ -20,10 +20,12 @@ import org.locationtech.spatial4j.context.jts.JtsSpatialContextFactory;
 import org.locationtech.spatial4j.shape.ShapeFactory;
 import org.locationtech.spatial4j.shape.jts.JtsShapeFactory;
 import org.traccar.config.Config;
+import org.traccar.helper.DistanceCalculator;
 import org.traccar.model.Geofence;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.locationtech.spatial4j.distance.DistanceUtils.DEG_TO_KM;
 
@@ -36,7 +38,9 @@ public class GeofencePolygon extends GeofenceGeometry {
         fromWkt(wkt);
     }
 
-    private ArrayList<Coordinate> coordinates;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] normalizedLongitudes;
 
     private double[] constant;
     private double[] multiple;
@@ -44,47 +48,40 @@ public class GeofencePolygon extends GeofenceGeometry {
     private boolean needNormalize = false;
 
     private void preCalculate() {
-        if (coordinates == null) {
-            return;
-        }
-
-        int polyCorners = coordinates.size();
+        int polyCorners = latitudes.length;
         int i;
         int j = polyCorners - 1;
 
-        if (constant != null) {
-            constant = null;
-        }
-        if (multiple != null) {
-            multiple = null;
-        }
-
         constant = new double[polyCorners];
         multiple = new double[polyCorners];
 
         boolean hasNegative = false;
         boolean hasPositive = false;
         for (i = 0; i < polyCorners; i++) {
-            if (coordinates.get(i).getLon() > 90) {
+            if (longitudes[i] > 90) {
                 hasPositive = true;
-            } else if (coordinates.get(i).getLon() < -90) {
+            } else if (longitudes[i] < -90) {
                 hasNegative = true;
             }
         }
         needNormalize = hasPositive && hasNegative;
 
+        normalizedLongitudes = new double[polyCorners];
+        for (i = 0; i < polyCorners; i++) {
+            normalizedLongitudes[i] = normalizeLon(longitudes[i]);
+        }
+
+        double[] lon = normalizedLongitudes;
+        double[] lat = latitudes;
         for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(j).getLon()) == normalizeLon(coordinates.get(i).getLon())) {
-                constant[i] = coordinates.get(i).getLat();
+            if (lon[j] == lon[i]) {
+                constant[i] = lat[i];
                 multiple[i] = 0;
             } else {
-                constant[i] = coordinates.get(i).getLat()
-                        - (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(j).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()))
-                        + (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
-                multiple[i] = (coordinates.get(j).getLat() - coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
+                constant[i] = lat[i]
+                        - (lon[i] * lat[j]) / (lon[j] - lon[i])
+                        + (lon[i] * lat[i]) / (lon[j] - lon[i]);
+                multiple[i] = (lat[j] - lat[i]) / (lon[j] - lon[i]);
             }
         }
     }
@@ -99,29 +96,55 @@ public class GeofencePolygon extends GeofenceGeometry {
     @Override
     public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
 
-        int polyCorners = coordinates.size();
+        double[] lon = normalizedLongitudes;
+        int polyCorners = lon.length;
         int i;
         int j = polyCorners - 1;
         double longitudeNorm = normalizeLon(longitude);
         boolean oddNodes = false;
 
         for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(i).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(j).getLon()) >= longitudeNorm
-                    || normalizeLon(coordinates.get(j).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(i).getLon()) >= longitudeNorm) {
+            if (lon[i] < longitudeNorm && lon[j] >= longitudeNorm
+                    || lon[j] < longitudeNorm && lon[i] >= longitudeNorm) {
                 oddNodes ^= longitudeNorm * multiple[i] + constant[i] < latitude;
             }
         }
         return oddNodes;
     }
 
+    @Override
+    public double distanceToBoundary(Config config, Geofence geofence, double latitude, double longitude) {
+        double[] lon = normalizedLongitudes;
+        double longitudeNorm = normalizeLon(longitude);
+        double minimum = Double.MAX_VALUE;
+        for (int i = 0, j = lon.length - 1; i < lon.length; j = i++) {
+            if (latitudes[j] == latitudes[i] && lon[j] == lon[i]) {
+                continue; // closing vertex or repeated point, covered by neighbouring segments
+            }
+            double distance = DistanceCalculator.distanceToLine(
+                    latitude, longitudeNorm, latitudes[j], lon[j], latitudes[i], lon[i]);
+            // NaN means the point lies on the segment within rounding error
+            minimum = Math.min(minimum, Double.isNaN(distance) ? 0 : distance);
+        }
+        return minimum;
+    }
+
+    @Override
+    public double[] getBounds(Config config, Geofence geofence) {
+        double[] bounds = getBounds(latitudes, longitudes, 0);
+        if (needNormalize) {
+            bounds[1] = -180;
+            bounds[3] = 180;
+        }
+        return bounds;
+    }
+
     @Override
     public double calculateArea() {
         JtsShapeFactory jtsShapeFactory = new JtsSpatialContextFactory().newSpatialContext().getShapeFactory();
         ShapeFactory.PolygonBuilder polygonBuilder = jtsShapeFactory.polygon();
-        for (Coordinate coordinate : coordinates) {
-            polygonBuilder.pointXY(coordinate.getLon(), coordinate.getLat());
+        for (int i = 0; i < latitudes.length; i++) {
+            polygonBuilder.pointXY(longitudes[i], latitudes[i]);
         }
         return polygonBuilder.build().getArea(SpatialContext.GEO) * DEG_TO_KM * DEG_TO_KM;
     }
@@ -130,10 +153,10 @@ public class GeofencePolygon extends GeofenceGeometry {
     public String toWkt() {
         StringBuilder buf = new StringBuilder();
         buf.append("POLYGON ((");
-        for (Coordinate coordinate : coordinates) {
-            buf.append(coordinate.getLat());
+        for (int i = 0; i < latitudes.length; i++) {
+            buf.append(latitudes[i]);
             buf.append(" ");
-            buf.append(coordinate.getLon());
+            buf.append(longitudes[i]);
             buf.append(", ");
         }
         return buf.substring(0, buf.length() - 2) + "))";
@@ -141,11 +164,7 @@ public class GeofencePolygon extends GeofenceGeometry {
 
     @Override
     public void fromWkt(String wkt) throws ParseException {
-        if (coordinates == null) {
-            coordinates = new ArrayList<>();
-        } else {
-            coordinates.clear();
-        }
+        List<Coordinate> coordinates = new ArrayList<>();
 
         if (!wkt.startsWith("POLYGON")) {
             throw new ParseException("Mismatch geometry type", 0);
@@ -178,6 +197,8 @@ public class GeofencePolygon extends GeofenceGeometry {
             coordinates.add(coordinate);
         }
 
+        latitudes = coordinates.stream().mapToDouble(Coordinate::getLat).toArray();
+        longitudes = coordinates.stream().mapToDouble(Coordinate::getLon).toArray();
         preCalculate();
     }
 
@@ -18,6 +18,7 @@ package org.traccar.geofence;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
@@ -26,7 +27,8 @@ import org.traccar.model.Geofence;
 
 public class GeofencePolyline extends GeofenceGeometry {
 
-    private ArrayList<Coordinate> coordinates;
+    private double[] latitudes;
+    private double[] longitudes;
 
     public GeofencePolyline() {
     }
@@ -35,22 +37,47 @@ public class GeofencePolyline extends GeofenceGeometry {
         fromWkt(wkt);
     }
 
-    @Override
-    public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
+    private static double getDistance(Config config, Geofence geofence) {
         double distance = geofence.getDouble("polylineDistance");
         if (distance == 0) {
             distance = config.getDouble(Keys.GEOFENCE_POLYLINE_DISTANCE);
         }
-        for (int i = 1; i < coordinates.size(); i++) {
+        return distance;
+    }
+
+    @Override
+    public boolean containsPoint(Config config, Geofence geofence, double latitude, double longitude) {
+        double distance = getDistance(config, geofence);
+        for (int i = 1; i < latitudes.length; i++) {
             if (DistanceCalculator.distanceToLine(
-                    latitude, longitude, coordinates.get(i - 1).getLat(), coordinates.get(i - 1).getLon(),
-                    coordinates.get(i).getLat(), coordinates.get(i).getLon()) <= distance) {
+                    latitude, longitude, latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i])
+                    <= distance) {
                 return true;
             }
         }
         return false;
     }
 
+    @Override
+    public double distanceToBoundary(Config config, Geofence geofence, double latitude, double longitude) {
+        double minimum = Double.MAX_VALUE;
+        for (int i = 1; i < latitudes.length; i++) {
+            if (latitudes[i - 1] == latitudes[i] && longitudes[i - 1] == longitudes[i]) {
+                continue; // repeated point, covered by neighbouring segments
+            }
+            double distance = DistanceCalculator.distanceToLine(
+                    latitude, longitude, latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+            // NaN means the point lies on the segment within rounding error
+            minimum = Math.min(minimum, Double.isNaN(distance) ? 0 : distance);
+        }
+        return Math.abs(minimum - getDistance(config, geofence));
+    }
+
+    @Override
+    public double[] getBounds(Config config, Geofence geofence) {
+        return getBounds(latitudes, longitudes, getDistance(config, geofence));
+    }
+
     @Override
     public double calculateArea() {
         return 0;
@@ -60,10 +87,10 @@ public class GeofencePolyline extends GeofenceGeometry {
     public String toWkt() {
         StringBuilder buf = new StringBuilder();
         buf.append("LINESTRING (");
-        for (Coordinate coordinate : coordinates) {
-            buf.append(coordinate.getLat());
+        for (int i = 0; i < latitudes.length; i++) {
+            buf.append(latitudes[i]);
             buf.append(" ");
-            buf.append(coordinate.getLon());
+            buf.append(longitudes[i]);
             buf.append(", ");
         }
         return buf.substring(0, buf.length() - 2) + ")";
@@ -71,11 +98,7 @@ public class GeofencePolyline extends GeofenceGeometry {
 
     @Override
     public void fromWkt(String wkt) throws ParseException {
-        if (coordinates == null) {
-            coordinates = new ArrayList<>();
-        } else {
-            coordinates.clear();
-        }
+        List<Coordinate> coordinates = new ArrayList<>();
 
         if (!wkt.startsWith("LINESTRING")) {
             throw new ParseException("Mismatch geometry type", 0);
@@ -108,6 +131,8 @@ public class GeofencePolyline extends GeofenceGeometry {
             coordinates.add(coordinate);
         }
 
+        latitudes = coordinates.stream().mapToDouble(Coordinate::getLat).toArray();
+        longitudes = coordinates.stream().mapToDouble(Coordinate::getLon).toArray();
     }
 
 }
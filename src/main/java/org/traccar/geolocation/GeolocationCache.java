@@ -0,0 +1,297 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geolocation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.CellTower;
+import org.traccar.model.Network;
+import org.traccar.model.WifiAccessPoint;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Geolocation results shared by all devices. Results from the provider are keyed by a fingerprint of the strongest
+ * cell towers and WiFi access points. Cell towers from an optional offline database are used when no fingerprint
+ * matches.
+ */
+@Singleton
+public class GeolocationCache implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeolocationCache.class);
+
+    public static final class Location {
+
+        private final double latitude;
+        private final double longitude;
+        private final double accuracy;
+        private final long time;
+
+        private Location(double latitude, double longitude, double accuracy) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+            this.time = System.currentTimeMillis();
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+    }
+
+    private final int size;
+    private final long ttl;
+    private final int strongest;
+    private final Integer defaultMcc;
+    private final Integer defaultMnc;
+
+    private final Map<String, Location> entries = new ConcurrentHashMap<>();
+    private final Set<String> order = new LinkedHashSet<>();
+    private final Map<String, Location> towers = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong offlineHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Inject
+    public GeolocationCache(Config config) {
+        size = config.getInteger(Keys.GEOLOCATION_CACHE_SIZE);
+        ttl = TimeUnit.SECONDS.toMillis(config.getLong(Keys.GEOLOCATION_CACHE_TTL));
+        strongest = config.getInteger(Keys.GEOLOCATION_CACHE_STRONGEST);
+        defaultMcc = config.hasKey(Keys.GEOLOCATION_MCC) ? config.getInteger(Keys.GEOLOCATION_MCC) : null;
+        defaultMnc = config.hasKey(Keys.GEOLOCATION_MNC) ? config.getInteger(Keys.GEOLOCATION_MNC) : null;
+        if (config.hasKey(Keys.GEOLOCATION_CACHE_FILE)) {
+            loadTowers(config.getString(Keys.GEOLOCATION_CACHE_FILE));
+        }
+    }
+
+    public boolean isEnabled() {
+        return size > 0 || !towers.isEmpty();
+    }
+
+    private static String towerKey(Object mcc, Object mnc, Object lac, Object cid) {
+        return mcc + ":" + mnc + ":" + lac + ":" + cid;
+    }
+
+    /**
+     * Key of the tower, or null if the operator is unknown, because cell ids are only unique per operator.
+     */
+    private String towerKey(Network network, CellTower cellTower) {
+        Integer mcc = cellTower.getMobileCountryCode();
+        if (mcc == null) {
+            mcc = network.getHomeMobileCountryCode() != null ? network.getHomeMobileCountryCode() : defaultMcc;
+        }
+        Integer mnc = cellTower.getMobileNetworkCode();
+        if (mnc == null) {
+            mnc = network.getHomeMobileNetworkCode() != null ? network.getHomeMobileNetworkCode() : defaultMnc;
+        }
+        if (mcc == null || mnc == null) {
+            return null;
+        }
+        return towerKey(mcc, mnc, cellTower.getLocationAreaCode(), cellTower.getCellId());
+    }
+
+    private static Comparator<Integer> bySignal() {
+        return Comparator.nullsLast(Comparator.reverseOrder());
+    }
+
+    private List<String> getTowerKeys(Network network) {
+        if (network.getCellTowers() == null) {
+            return List.of();
+        }
+        return network.getCellTowers().stream()
+                .filter(cellTower -> cellTower.getCellId() != null && cellTower.getLocationAreaCode() != null)
+                .sorted(Comparator.comparing(CellTower::getSignalStrength, bySignal()))
+                .map(cellTower -> towerKey(network, cellTower))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fingerprint of the strongest cell towers and access points, independent of the order they are reported in.
+     */
+    private String getFingerprint(Network network) {
+        List<String> keys = new ArrayList<>();
+        getTowerKeys(network).stream().limit(strongest).forEach(keys::add);
+        if (network.getWifiAccessPoints() != null) {
+            network.getWifiAccessPoints().stream()
+                    .filter(wifiAccessPoint -> wifiAccessPoint.getMacAddress() != null)
+                    .sorted(Comparator.comparing(WifiAccessPoint::getSignalStrength, bySignal()))
+                    .limit(strongest)
+                    .map(wifiAccessPoint -> wifiAccessPoint.getMacAddress().toLowerCase(Locale.ROOT))
+                    .forEach(keys::add);
+        }
+        if (keys.isEmpty()) {
+            return null;
+        }
+        keys.sort(null);
+        return String.join(",", keys);
+    }
+
+    private boolean isExpired(Location location) {
+        return ttl > 0 && System.currentTimeMillis() - location.time > ttl;
+    }
+
+    private Location getOfflineLocation(Network network) {
+        double latitude = 0;
+        double longitude = 0;
+        double accuracy = 0;
+        int count = 0;
+        for (String key : getTowerKeys(network)) {
+            Location tower = towers.get(key);
+            if (tower != null) {
+                latitude += tower.latitude;
+                longitude += tower.longitude;
+                accuracy = Math.max(accuracy, tower.accuracy);
+                count += 1;
+            }
+        }
+        return count > 0 ? new Location(latitude / count, longitude / count, accuracy) : null;
+    }
+
+    public Location get(Network network) {
+        String fingerprint = size > 0 ? getFingerprint(network) : null;
+        if (fingerprint != null) {
+            Location location = entries.get(fingerprint);
+            if (location != null) {
+                if (!isExpired(location)) {
+                    hits.incrementAndGet();
+                    return location;
+                }
+                remove(fingerprint, location);
+            }
+        }
+        if (!towers.isEmpty()) {
+            Location location = getOfflineLocation(network);
+            if (location != null) {
+                offlineHits.incrementAndGet();
+                return location;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void remove(String fingerprint, Location location) {
+        synchronized (order) {
+            if (entries.remove(fingerprint, location)) {
+                order.remove(fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Stores the location and moves the fingerprint to the end of the eviction order, so refreshed entries are
+     * evicted last. Writes only follow provider requests, so they are serialized, reads are not.
+     */
+    public void put(Network network, double latitude, double longitude, double accuracy) {
+        String fingerprint = size > 0 ? getFingerprint(network) : null;
+        if (fingerprint != null) {
+            synchronized (order) {
+                entries.put(fingerprint, new Location(latitude, longitude, accuracy));
+                order.remove(fingerprint);
+                order.add(fingerprint);
+                Iterator<String> iterator = order.iterator();
+                while (order.size() > size && iterator.hasNext()) {
+                    entries.remove(iterator.next());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getOfflineHits() {
+        return offlineHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void loadTowers(String file) {
+        long time = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                if (values.length < 9) {
+                    continue;
+                }
+                try {
+                    towers.put(
+                            towerKey(Integer.parseInt(values[1]), Integer.parseInt(values[2]),
+                                    Integer.parseInt(values[3]), Long.parseLong(values[4])),
+                            new Location(Double.parseDouble(values[7]), Double.parseDouble(values[6]),
+                                    Double.parseDouble(values[8])));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Skipped cell tower {}", line);
+                }
+            }
+            LOGGER.info("Loaded {} cell towers in {} ms", towers.size(), System.currentTimeMillis() - time);
+        } catch (IOException e) {
+            LOGGER.warn("Cell tower database load error", e);
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        if (isEnabled()) {
+            LOGGER.info("Geolocation cache hits: {}, offline hits: {}, misses: {}",
+                    hits.get(), offlineHits.get(), misses.get());
+        }
+    }
+
+}
@@ -16,15 +16,13 @@
  */
 package org.traccar.handler;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import io.netty.channel.ChannelHandler;
 import org.apache.commons.jexl3.JexlFeatures;
@@ -32,7 +30,8 @@ import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.introspection.JexlSandbox;
 import org.apache.commons.jexl3.JexlException;
-import org.apache.commons.jexl3.MapContext;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlScript;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.BaseDataHandler;
@@ -42,6 +41,7 @@ import org.traccar.model.Attribute;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.storage.EntityMapping;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -52,6 +52,10 @@ public class ComputedAttributesHandler extends BaseDataHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ComputedAttributesHandler.class);
 
+    private static final Map<String, Function<Object, Object>> POSITION_GETTERS = getPositionGetters();
+
+    private static final int SCRIPT_CACHE_LIMIT = 1000;
+
     private final CacheManager cacheManager;
 
     private final JexlEngine engine;
@@ -60,6 +64,8 @@ public class ComputedAttributesHandler extends BaseDataHandler {
 
     private final boolean includeDeviceAttributes;
 
+    private final Map<String, JexlScript> scripts = new ConcurrentHashMap<>();
+
     @Inject
     public ComputedAttributesHandler(Config config, CacheManager cacheManager) {
         this.cacheManager = cacheManager;
@@ -83,36 +89,82 @@ public class ComputedAttributesHandler extends BaseDataHandler {
         includeDeviceAttributes = config.getBoolean(Keys.PROCESSING_COMPUTED_ATTRIBUTES_DEVICE_ATTRIBUTES);
     }
 
-    private MapContext prepareContext(Position position) {
-        MapContext result = new MapContext();
-        if (includeDeviceAttributes) {
-            Device device = cacheManager.getObject(Device.class, position.getRastreador_id());
-            if (device != null) {
-                for (String key : device.getAttributes().keySet()) {
-                    result.set(key, device.getAttributes().get(key));
-                }
+    private static Map<String, Function<Object, Object>> getPositionGetters() {
+        Map<String, Function<Object, Object>> getters = new HashMap<>();
+        EntityMapping.of(Position.class).getGetters().forEach((name, getter) -> {
+            if (!name.equals("Class") && !getter.getType().equals(Map.class)) {
+                getters.put(Character.toLowerCase(name.charAt(0)) + name.substring(1), getter.getAccessor());
             }
+        });
+        return getters;
+    }
+
+    /**
+     * Context resolving only the variables a script reads. Position properties take precedence over position
+     * attributes, which take precedence over device attributes.
+     */
+    private final class PositionContext implements JexlContext {
+
+        private final Position position;
+        private final Map<String, Object> locals = new HashMap<>();
+        private Map<String, Object> deviceAttributes;
+
+        private PositionContext(Position position) {
+            this.position = position;
         }
-        Set<Method> methods = new HashSet<>(Arrays.asList(position.getClass().getMethods()));
-        Arrays.asList(Object.class.getMethods()).forEach(methods::remove);
-        for (Method method : methods) {
-            if (method.getName().startsWith("get") && method.getParameterTypes().length == 0) {
-                String name = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
 
-                try {
-                    if (!method.getReturnType().equals(Map.class)) {
-                        result.set(name, method.invoke(position));
-                    } else {
-                        for (Object key : ((Map<?, ?>) method.invoke(position)).keySet()) {
-                            result.set((String) key, ((Map<?, ?>) method.invoke(position)).get(key));
-                        }
-                    }
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Attribute reflection error", error);
+        private Map<String, Object> getDeviceAttributes() {
+            if (deviceAttributes == null) {
+                Device device = includeDeviceAttributes
+                        ? cacheManager.getObject(Device.class, position.getRastreador_id()) : null;
+                deviceAttributes = device != null ? device.getAttributes() : Collections.emptyMap();
+            }
+            return deviceAttributes;
+        }
+
+        @Override
+        public Object get(String name) {
+            if (locals.containsKey(name)) {
+                return locals.get(name);
+            }
+            Function<Object, Object> getter = POSITION_GETTERS.get(name);
+            if (getter != null) {
+                return getter.apply(position);
+            }
+            if (position.getAttributes().containsKey(name)) {
+                return position.getAttributes().get(name);
+            }
+            return getDeviceAttributes().get(name);
+        }
+
+        @Override
+        public void set(String name, Object value) {
+            locals.put(name, value);
+        }
+
+        @Override
+        public boolean has(String name) {
+            return locals.containsKey(name) || POSITION_GETTERS.containsKey(name)
+                    || position.getAttributes().containsKey(name) || getDeviceAttributes().containsKey(name);
+        }
+
+    }
+
+    private JexlScript getScript(Attribute attribute) {
+        String expression = attribute.getExpression();
+        JexlScript script = scripts.get(expression);
+        if (script == null) {
+            script = engine.createScript(features, engine.createInfo(), expression);
+            if (scripts.size() >= SCRIPT_CACHE_LIMIT) {
+                var iterator = scripts.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
                 }
             }
+            scripts.put(expression, script);
         }
-        return result;
+        return script;
     }
 
     /**
@@ -120,9 +172,7 @@ public class ComputedAttributesHandler extends BaseDataHandler {
      */
     @Deprecated
     public Object computeAttribute(Attribute attribute, Position position) throws JexlException {
-        return engine
-                .createScript(features, engine.createInfo(), attribute.getExpression())
-                .execute(prepareContext(position));
+        return getScript(attribute).execute(new PositionContext(position));
     }
 
     @Override
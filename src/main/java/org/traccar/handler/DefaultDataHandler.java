@@ -16,9 +16,12 @@
 package org.traccar.handler;
 
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.traccar.BaseDataHandler;
+import org.traccar.ProcessingExecutor;
+import org.traccar.database.PositionBatchWriter;
 import org.traccar.model.Position;
 import org.traccar.storage.Storage;
 import org.traccar.storage.query.Columns;
@@ -34,10 +37,27 @@ public class DefaultDataHandler extends BaseDataHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDataHandler.class);
 
     private final Storage storage;
+    private final PositionBatchWriter positionBatchWriter;
+    private final ProcessingExecutor processingExecutor;
 
     @Inject
-    public DefaultDataHandler(Storage storage) {
+    public DefaultDataHandler(
+            Storage storage, PositionBatchWriter positionBatchWriter, ProcessingExecutor processingExecutor) {
         this.storage = storage;
+        this.positionBatchWriter = positionBatchWriter;
+        this.processingExecutor = processingExecutor;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Position && positionBatchWriter.isEnabled()) {
+            Position position = (Position) msg;
+            boolean store = position.getLatitude() != 0 || position.getLongitude() != 0;
+            positionBatchWriter.write(position, store,
+                    () -> processingExecutor.resume(ctx.executor(), () -> ctx.fireChannelRead(position)));
+            return;
+        }
+        super.channelRead(ctx, msg);
     }
 
     @Override
@@ -17,10 +17,8 @@ package org.traccar.handler;
 
 import io.netty.channel.ChannelHandler;
 import org.traccar.BaseDataHandler;
-import org.traccar.config.Config;
-import org.traccar.helper.model.GeofenceUtil;
 import org.traccar.model.Position;
-import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.GeofenceTracker;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -30,21 +28,19 @@ import java.util.List;
 @ChannelHandler.Sharable
 public class GeofenceHandler extends BaseDataHandler {
 
-    private final Config config;
-    private final CacheManager cacheManager;
+    private final GeofenceTracker geofenceTracker;
 
     @Inject
-    public GeofenceHandler(Config config, CacheManager cacheManager) {
-        this.config = config;
-        this.cacheManager = cacheManager;
+    public GeofenceHandler(GeofenceTracker geofenceTracker) {
+        this.geofenceTracker = geofenceTracker;
     }
 
     @Override
     protected Position handlePosition(Position position) {
-        /*List<Long> geofenceIds = GeofenceUtil.getCurrentGeofences(config, cacheManager, position);
+        List<Long> geofenceIds = geofenceTracker.update(position);
         if (!geofenceIds.isEmpty()) {
             position.setGeofenceIds(geofenceIds);
-        }*/
+        }
         return position;
     }
 
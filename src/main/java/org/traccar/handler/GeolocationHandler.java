@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.database.StatisticsManager;
+import org.traccar.geolocation.GeolocationCache;
 import org.traccar.geolocation.GeolocationProvider;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
@@ -33,15 +34,17 @@ public class GeolocationHandler extends ChannelInboundHandlerAdapter {
     private static final Logger LOGGER = LoggerFactory.getLogger(GeolocationHandler.class);
 
     private final GeolocationProvider geolocationProvider;
+    private final GeolocationCache geolocationCache;
     private final CacheManager cacheManager;
     private final StatisticsManager statisticsManager;
     private final boolean processInvalidPositions;
     private final boolean reuse;
 
     public GeolocationHandler(
-            Config config, GeolocationProvider geolocationProvider, CacheManager cacheManager,
-            StatisticsManager statisticsManager) {
+            Config config, GeolocationProvider geolocationProvider, GeolocationCache geolocationCache,
+            CacheManager cacheManager, StatisticsManager statisticsManager) {
         this.geolocationProvider = geolocationProvider;
+        this.geolocationCache = geolocationCache;
         this.cacheManager = cacheManager;
         this.statisticsManager = statisticsManager;
         processInvalidPositions = config.getBoolean(Keys.GEOLOCATION_PROCESS_INVALID_POSITIONS);
@@ -65,6 +68,21 @@ public class GeolocationHandler extends ChannelInboundHandlerAdapter {
                     }
                 }
 
+                if (geolocationCache.isEnabled()) {
+                    var location = geolocationCache.get(position.getRede());
+                    if (location != null) {
+                        updatePosition(
+                                position, location.getLatitude(), location.getLongitude(), location.getAccuracy());
+                        ctx.fireChannelRead(position);
+                        return;
+                    }
+                }
+
+                if (geolocationProvider == null) {
+                    ctx.fireChannelRead(position);
+                    return;
+                }
+
                 if (statisticsManager != null) {
                     statisticsManager.registerGeolocationRequest();
                 }
@@ -73,6 +91,7 @@ public class GeolocationHandler extends ChannelInboundHandlerAdapter {
                         new GeolocationProvider.LocationProviderCallback() {
                     @Override
                     public void onSuccess(double latitude, double longitude, double accuracy) {
+                        geolocationCache.put(position.getRede(), latitude, longitude, accuracy);
                         updatePosition(position, latitude, longitude, accuracy);
                         ctx.fireChannelRead(position);
                     }
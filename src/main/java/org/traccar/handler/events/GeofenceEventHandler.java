@@ -16,16 +16,15 @@
 package org.traccar.handler.events;
 
 import io.netty.channel.ChannelHandler;
-import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Calendar;
 import org.traccar.model.Event;
 import org.traccar.model.Geofence;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.GeofenceTracker;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,35 +34,22 @@ import java.util.Map;
 public class GeofenceEventHandler extends BaseEventHandler {
 
     private final CacheManager cacheManager;
+    private final GeofenceTracker geofenceTracker;
 
     @Inject
-    public GeofenceEventHandler(CacheManager cacheManager) {
+    public GeofenceEventHandler(CacheManager cacheManager, GeofenceTracker geofenceTracker) {
         this.cacheManager = cacheManager;
+        this.geofenceTracker = geofenceTracker;
     }
 
     @Override
     protected Map<Event, Position> analyzePosition(Position position) {
-        if (!PositionUtil.isLatest(cacheManager, position)) {
+        List<Long> oldGeofences = geofenceTracker.getExited(position);
+        List<Long> newGeofences = geofenceTracker.getEntered(position);
+        if (oldGeofences == null || newGeofences == null) {
             return null;
         }
 
-        List<Long> oldGeofences = new ArrayList<>();
-        Position lastPosition = cacheManager.getPosition(position.getRastreador_id());
-        /* 
-        if (lastPosition != null && lastPosition.getGeofenceIds() != null) {
-            oldGeofences.addAll(lastPosition.getGeofenceIds());
-        }
-        */
-
-        List<Long> newGeofences = new ArrayList<>();
-        /*
-        if (position.getGeofenceIds() != null) {
-            newGeofences.addAll(position.getGeofenceIds());
-            newGeofences.removeAll(oldGeofences);
-            oldGeofences.removeAll(position.getGeofenceIds());
-        }
-        */
-
         Map<Event, Position> events = new HashMap<>();
         for (long geofenceId : oldGeofences) {
             Geofence geofence = cacheManager.getObject(Geofence.class, geofenceId);
@@ -78,12 +64,15 @@ public class GeofenceEventHandler extends BaseEventHandler {
             }
         }
         for (long geofenceId : newGeofences) {
-            long calendarId = cacheManager.getObject(Geofence.class, geofenceId).getCalendarId();
-            Calendar calendar = calendarId != 0 ? cacheManager.getObject(Calendar.class, calendarId) : null;
-            if (calendar == null || calendar.checkMoment(position.getDatahora_calculada())) {
-                Event event = new Event(Event.TYPE_GEOFENCE_ENTER, position);
-                event.setGeofenceId(geofenceId);
-                events.put(event, position);
+            Geofence geofence = cacheManager.getObject(Geofence.class, geofenceId);
+            if (geofence != null) {
+                long calendarId = geofence.getCalendarId();
+                Calendar calendar = calendarId != 0 ? cacheManager.getObject(Calendar.class, calendarId) : null;
+                if (calendar == null || calendar.checkMoment(position.getDatahora_calculada())) {
+                    Event event = new Event(Event.TYPE_GEOFENCE_ENTER, position);
+                    event.setGeofenceId(geofenceId);
+                    events.put(event, position);
+                }
             }
         }
         return events;
@@ -17,8 +17,6 @@
 package org.traccar.handler.events;
 
 import io.netty.channel.ChannelHandler;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.traccar.config.Keys;
 import org.traccar.helper.model.AttributeUtil;
 import org.traccar.helper.model.PositionUtil;
@@ -27,13 +25,10 @@ import org.traccar.model.Event;
 import org.traccar.model.Position;
 import org.traccar.reports.common.TripsConfig;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.DeviceState;
+import org.traccar.session.state.DeviceStateManager;
 import org.traccar.session.state.MotionProcessor;
 import org.traccar.session.state.MotionState;
-import org.traccar.storage.Storage;
-import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Condition;
-import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -44,15 +39,13 @@ import java.util.Map;
 @ChannelHandler.Sharable
 public class MotionEventHandler extends BaseEventHandler {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(MotionEventHandler.class);
-
     private final CacheManager cacheManager;
-    private final Storage storage;
+    private final DeviceStateManager deviceStateManager;
 
     @Inject
-    public MotionEventHandler(CacheManager cacheManager, Storage storage) {
+    public MotionEventHandler(CacheManager cacheManager, DeviceStateManager deviceStateManager) {
         this.cacheManager = cacheManager;
-        this.storage = storage;
+        this.deviceStateManager = deviceStateManager;
     }
 
     @Override
@@ -69,18 +62,14 @@ public class MotionEventHandler extends BaseEventHandler {
             return null;
         }
 
-        TripsConfig tripsConfig = new TripsConfig(new AttributeUtil.CacheProvider(cacheManager, deviceId));
-        MotionState state = MotionState.fromDevice(device);
+        TripsConfig tripsConfig = cacheManager.getDeviceValue(deviceId, TripsConfig.class,
+                () -> new TripsConfig(new AttributeUtil.CacheProvider(cacheManager, deviceId)));
+        DeviceState deviceState = deviceStateManager.getState(deviceId);
+        MotionState state = MotionState.fromDeviceState(deviceState);
         MotionProcessor.updateState(state, position, position.getBoolean(Position.KEY_MOTION), tripsConfig);
         if (state.isChanged()) {
-            state.toDevice(device);
-            try {
-                storage.updateObject(device, new Request(
-                        new Columns.Include("motionStreak", "motionState", "motionTime", "motionDistance"),
-                        new Condition.Equals("id", device.getId())));
-            } catch (StorageException e) {
-                LOGGER.warn("Update device motion error", e);
-            }
+            state.toDeviceState(deviceState);
+            deviceStateManager.setChanged(deviceId);
         }
         return state.getEvent() != null ? Collections.singletonMap(state.getEvent(), position) : null;
     }
@@ -17,8 +17,6 @@
 package org.traccar.handler.events;
 
 import io.netty.channel.ChannelHandler;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
 import org.traccar.config.Keys;
 import org.traccar.helper.model.AttributeUtil;
@@ -28,13 +26,10 @@ import org.traccar.model.Event;
 import org.traccar.model.Geofence;
 import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
+import org.traccar.session.state.DeviceState;
+import org.traccar.session.state.DeviceStateManager;
 import org.traccar.session.state.OverspeedProcessor;
 import org.traccar.session.state.OverspeedState;
-import org.traccar.storage.Storage;
-import org.traccar.storage.StorageException;
-import org.traccar.storage.query.Columns;
-import org.traccar.storage.query.Condition;
-import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -45,19 +40,17 @@ import java.util.Map;
 @ChannelHandler.Sharable
 public class OverspeedEventHandler extends BaseEventHandler {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(OverspeedEventHandler.class);
-
     private final CacheManager cacheManager;
-    private final Storage storage;
+    private final DeviceStateManager deviceStateManager;
 
     private final long minimalDuration;
     private final boolean preferLowest;
 
     @Inject
     public OverspeedEventHandler(
-            Config config, CacheManager cacheManager, Storage storage) {
+            Config config, CacheManager cacheManager, DeviceStateManager deviceStateManager) {
         this.cacheManager = cacheManager;
-        this.storage = storage;
+        this.deviceStateManager = deviceStateManager;
         minimalDuration = config.getLong(Keys.EVENT_OVERSPEED_MINIMAL_DURATION) * 1000;
         preferLowest = config.getBoolean(Keys.EVENT_OVERSPEED_PREFER_LOWEST);
     }
@@ -84,7 +77,6 @@ public class OverspeedEventHandler extends BaseEventHandler {
         double geofenceSpeedLimit = 0;
         long overspeedGeofenceId = 0;
 
-        /*
         if (position.getGeofenceIds() != null) {
             for (long geofenceId : position.getGeofenceIds()) {
                 Geofence geofence = cacheManager.getObject(Geofence.class, geofenceId);
@@ -99,7 +91,6 @@ public class OverspeedEventHandler extends BaseEventHandler {
                 }
             }
         }
-        */
         if (geofenceSpeedLimit > 0) {
             speedLimit = geofenceSpeedLimit;
         }
@@ -108,17 +99,12 @@ public class OverspeedEventHandler extends BaseEventHandler {
             return null;
         }
 
-        OverspeedState state = OverspeedState.fromDevice(device);
+        DeviceState deviceState = deviceStateManager.getState(deviceId);
+        OverspeedState state = OverspeedState.fromDeviceState(deviceState);
         OverspeedProcessor.updateState(state, position, speedLimit, minimalDuration, overspeedGeofenceId);
         if (state.isChanged()) {
-            state.toDevice(device);
-            try {
-                storage.updateObject(device, new Request(
-                        new Columns.Include("overspeedState", "overspeedTime", "overspeedGeofenceId"),
-                        new Condition.Equals("id", device.getId())));
-            } catch (StorageException e) {
-                LOGGER.warn("Update device overspeed error", e);
-            }
+            state.toDeviceState(deviceState);
+            deviceStateManager.setChanged(deviceId);
         }
         return state.getEvent() != null ? Collections.singletonMap(state.getEvent(), position) : null;
     }
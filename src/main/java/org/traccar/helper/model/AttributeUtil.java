@@ -30,6 +30,8 @@ import org.traccar.storage.query.Columns;
 import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
+import java.util.Objects;
+
 public final class AttributeUtil {
 
     private AttributeUtil() {
@@ -43,7 +45,8 @@ public final class AttributeUtil {
     }
 
     public static <T> T lookup(CacheManager cacheManager, ConfigKey<T> key, long deviceId) {
-        return lookup(new CacheProvider(cacheManager, deviceId), key);
+        return cacheManager.getDeviceValue(
+                deviceId, key, () -> lookup(new CacheProvider(cacheManager, deviceId), key));
     }
 
     @SuppressWarnings({ "deprecation", "unchecked" })
@@ -92,8 +95,53 @@ public final class AttributeUtil {
         return key.getDefaultValue();
     }
 
+    /**
+     * Cache key of the device password for a protocol. Decoders create it once, so password lookups on the message
+     * path don't allocate.
+     */
+    public static final class DevicePasswordKey {
+
+        private final String protocol;
+        private final String defaultPassword;
+        private final int hashCode;
+
+        public DevicePasswordKey(String protocol, String defaultPassword) {
+            this.protocol = protocol;
+            this.defaultPassword = defaultPassword;
+            this.hashCode = Objects.hash(protocol, defaultPassword);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DevicePasswordKey that = (DevicePasswordKey) o;
+            return Objects.equals(protocol, that.protocol) && Objects.equals(defaultPassword, that.defaultPassword);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
     public static String getDevicePassword(
             CacheManager cacheManager, long deviceId, String protocol, String defaultPassword) {
+        return getDevicePassword(cacheManager, deviceId, new DevicePasswordKey(protocol, defaultPassword));
+    }
+
+    public static String getDevicePassword(CacheManager cacheManager, long deviceId, DevicePasswordKey key) {
+        return cacheManager.getDeviceValue(
+                deviceId, key, () -> resolveDevicePassword(cacheManager, deviceId, key.protocol, key.defaultPassword));
+    }
+
+    private static String resolveDevicePassword(
+            CacheManager cacheManager, long deviceId, String protocol, String defaultPassword) {
 
         String password = lookup(cacheManager, Keys.DEVICE_PASSWORD, deviceId);
         if (password != null) {
@@ -21,18 +21,37 @@ import org.traccar.model.Position;
 import org.traccar.session.cache.CacheManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public final class GeofenceUtil {
 
     private GeofenceUtil() {
     }
 
+    /**
+     * Ids of geofences linked to the device. The same instance is returned until device links change.
+     */
+    public static Set<Long> getDeviceGeofences(CacheManager cacheManager, long deviceId) {
+        return cacheManager.getDeviceValue(deviceId, Geofence.class,
+                () -> cacheManager.getDeviceObjects(deviceId, Geofence.class).stream()
+                        .map(Geofence::getId)
+                        .collect(Collectors.toUnmodifiableSet()));
+    }
+
     public static List<Long> getCurrentGeofences(Config config, CacheManager cacheManager, Position position) {
+        Set<Long> deviceGeofences = getDeviceGeofences(cacheManager, position.getRastreador_id());
+        if (deviceGeofences.isEmpty()) {
+            return Collections.emptyList();
+        }
         List<Long> result = new ArrayList<>();
-        for (Geofence geofence : cacheManager.getDeviceObjects(position.getRastreador_id(), Geofence.class)) {
-            if (geofence.getGeometry().containsPoint(
-                    config, geofence, position.getLatitude(), position.getLongitude())) {
+        double latitude = position.getLatitude();
+        double longitude = position.getLongitude();
+        for (Geofence geofence : cacheManager.getGeofenceIndex().find(latitude, longitude)) {
+            if (deviceGeofences.contains(geofence.getId())
+                    && geofence.getGeometry().containsPoint(config, geofence, latitude, longitude)) {
                 result.add(geofence.getId());
             }
         }
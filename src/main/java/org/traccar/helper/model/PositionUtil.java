@@ -15,7 +15,6 @@
  */
 package org.traccar.helper.model;
 
-import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
 import org.traccar.model.Position;
 import org.traccar.model.User;
@@ -29,7 +28,7 @@ import org.traccar.storage.query.Request;
 
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class PositionUtil {
 
@@ -64,17 +63,20 @@ public final class PositionUtil {
                 new Order("fixTime")));
     }
 
-    public static List<Position> getLatestPositions(Storage storage, long userId) throws StorageException {
-        var devices = storage.getObjects(Device.class, new Request(
-                new Columns.Include("id"),
-                new Condition.Permission(User.class, userId, Device.class)));
-        var deviceIds = devices.stream().map(BaseModel::getId).collect(Collectors.toUnmodifiableSet());
+    public static Stream<Position> getPositionsStream(
+            Storage storage, long deviceId, Date from, Date to) throws StorageException {
+        return storage.getObjectsStream(Position.class, new Request(
+                new Columns.All(),
+                new Condition.And(
+                        new Condition.Equals("deviceId", deviceId),
+                        new Condition.Between("fixTime", "from", from, "to", to)),
+                new Order("fixTime")));
+    }
 
-        var positions = storage.getObjects(Position.class, new Request(
-                new Columns.All(), new Condition.LatestPositions()));
-        return positions.stream()
-                .filter(position -> deviceIds.contains(position.getRastreador_id()))
-                .collect(Collectors.toList());
+    public static List<Position> getLatestPositions(Storage storage, long userId) throws StorageException {
+        return storage.getObjects(Position.class, new Request(
+                new Columns.All(),
+                new Condition.LatestPositions(new Condition.Permission(User.class, userId, Device.class))));
     }
 
 }
@@ -315,9 +315,9 @@ public class Position extends Message {
         this.rede = network;
     }
 
-      /* 
     private List<Long> geofenceIds;
 
+    @QueryIgnore
     public List<Long> getGeofenceIds() {
         return geofenceIds;
     }
@@ -329,7 +329,6 @@ public class Position extends Message {
             this.geofenceIds = null;
         }
     }
-    */
 
     @JsonIgnore
     @QueryIgnore
@@ -489,6 +489,7 @@ public class Gt06ProtocolDecoder extends BaseProtocolDecoder {
                 if (deviceSession != null) {
                     TimeZone timeZone = deviceSession.get(DeviceSession.KEY_TIMEZONE);
                     if (timeZone.getRawOffset() == 0) {
+                        timeZone = (TimeZone) timeZone.clone();
                         timeZone.setRawOffset(offset * 1000);
                         deviceSession.set(DeviceSession.KEY_TIMEZONE, timeZone);
                     }
@@ -29,8 +29,11 @@ import java.nio.charset.StandardCharsets;
 
 public class Gt06ProtocolEncoder extends BaseProtocolEncoder {
 
+    private final AttributeUtil.DevicePasswordKey devicePasswordKey;
+
     public Gt06ProtocolEncoder(Protocol protocol) {
         super(protocol);
+        devicePasswordKey = new AttributeUtil.DevicePasswordKey(getProtocolName(), "123456");
     }
 
     private ByteBuf encodeContent(long deviceId, String content) {
@@ -72,7 +75,7 @@ public class Gt06ProtocolEncoder extends BaseProtocolEncoder {
                 getCacheManager(), Keys.PROTOCOL_ALTERNATIVE.withPrefix(getProtocolName()), command.getRastreador_id());
 
         String password = AttributeUtil.getDevicePassword(
-                getCacheManager(), command.getRastreador_id(), getProtocolName(), "123456");
+                getCacheManager(), command.getRastreador_id(), devicePasswordKey);
 
         Device device = getCacheManager().getObject(Device.class, command.getRastreador_id());
 
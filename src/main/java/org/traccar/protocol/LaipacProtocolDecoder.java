@@ -34,12 +34,15 @@ import java.util.regex.Pattern;
 
 public class LaipacProtocolDecoder extends BaseProtocolDecoder {
 
+    public static final String DEFAULT_DEVICE_PASSWORD = "00000000";
+
+    private final AttributeUtil.DevicePasswordKey devicePasswordKey;
+
     public LaipacProtocolDecoder(Protocol protocol) {
         super(protocol);
+        devicePasswordKey = new AttributeUtil.DevicePasswordKey(getProtocolName(), DEFAULT_DEVICE_PASSWORD);
     }
 
-    public static final String DEFAULT_DEVICE_PASSWORD = "00000000";
-
     private static final Pattern PATTERN_EAVSYS = new PatternBuilder()
             .text("$EAVSYS,")
             .expression("([^,]+),")              // identifier
@@ -254,7 +257,7 @@ public class LaipacProtocolDecoder extends BaseProtocolDecoder {
             sendAcknowledge(status, event, checksum, channel, remoteAddress);
 
             String devicePassword = AttributeUtil.getDevicePassword(
-                    getCacheManager(), deviceSession.getDeviceId(), getProtocolName(), DEFAULT_DEVICE_PASSWORD);
+                    getCacheManager(), deviceSession.getDeviceId(), devicePasswordKey);
             sendEventResponse(event, devicePassword, channel, remoteAddress);
         }
 
@@ -15,6 +15,10 @@
  */
 package org.traccar.reports;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
 import org.traccar.helper.DateUtil;
 import org.traccar.helper.model.PositionUtil;
 import org.traccar.model.Position;
@@ -26,6 +30,7 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -33,21 +38,29 @@ import java.util.stream.Collectors;
 public class CsvExportProvider {
 
     private final Storage storage;
+    private final ObjectMapper objectMapper;
+    private final List<String> attributes;
 
     @Inject
-    public CsvExportProvider(Storage storage) {
+    public CsvExportProvider(Config config, Storage storage, ObjectMapper objectMapper) {
         this.storage = storage;
+        this.objectMapper = objectMapper;
+        String attributeList = config.getString(Keys.REPORT_CSV_ATTRIBUTES);
+        attributes = attributeList != null ? List.of(attributeList.split("[, ]+")) : null;
+    }
+
+    private static String escape(Object value) {
+        String string = Objects.toString(value, "");
+        if (string.indexOf(',') >= 0 || string.indexOf('"') >= 0
+                || string.indexOf('\n') >= 0 || string.indexOf('\r') >= 0) {
+            return '"' + string.replace("\"", "\"\"") + '"';
+        }
+        return string;
     }
 
     public void generate(
             OutputStream outputStream, long deviceId, Date from, Date to) throws StorageException {
 
-        var positions = PositionUtil.getPositions(storage, deviceId, from, to);
-
-        var attributes = positions.stream()
-                .flatMap((position -> position.getAttributes().keySet().stream()))
-                .collect(Collectors.toUnmodifiableSet());
-
         var properties = new LinkedHashMap<String, Function<Position, Object>>();
         properties.put("id", Position::getId);
         properties.put("deviceId", Position::getRastreador_id);
@@ -63,12 +76,23 @@ public class CsvExportProvider {
         properties.put("course", Position::getCurso);
         //properties.put("address", Position::getAddress);
         properties.put("accuracy", Position::getPrecisao);
-        attributes.forEach(key -> properties.put(key, position -> position.getAttributes().get(key)));
+        if (attributes != null) {
+            attributes.forEach(key -> properties.put(key, position -> position.getAttributes().get(key)));
+        } else {
+            properties.put("attributes", position -> {
+                try {
+                    return objectMapper.writeValueAsString(position.getAttributes());
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            });
+        }
 
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
+        try (PrintWriter writer = new PrintWriter(outputStream);
+             var positions = PositionUtil.getPositionsStream(storage, deviceId, from, to)) {
             writer.println(String.join(",", properties.keySet()));
             positions.forEach(position -> writer.println(properties.values().stream()
-                    .map(f -> Objects.toString(f.apply(position), ""))
+                    .map(f -> escape(f.apply(position)))
                     .collect(Collectors.joining(","))));
         }
     }
@@ -16,7 +16,6 @@
 package org.traccar.session;
 
 import io.netty.channel.Channel;
-import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +60,8 @@ public class ConnectionManager implements BroadcastInterface {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionManager.class);
 
+    private static final long SWEEP_INTERVAL_SECONDS = 1;
+
     private final long deviceTimeout;
 
     private final Map<Long, DeviceSession> sessionsByDeviceId = new ConcurrentHashMap<>();
@@ -78,7 +79,7 @@ public class ConnectionManager implements BroadcastInterface {
     private final Map<Long, Set<Long>> userDevices = new HashMap<>();
     private final Map<Long, Set<Long>> deviceUsers = new HashMap<>();
 
-    private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastSeen = new ConcurrentHashMap<>();
 
     @Inject
     public ConnectionManager(
@@ -94,6 +95,28 @@ public class ConnectionManager implements BroadcastInterface {
         this.deviceLookupService = deviceLookupService;
         deviceTimeout = config.getLong(Keys.STATUS_TIMEOUT);
         broadcastService.registerListener(this);
+        scheduleSweep();
+    }
+
+    private void scheduleSweep() {
+        try {
+            timer.newTimeout(timeout -> sweep(), SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Status timer stopped", e);
+        }
+    }
+
+    private void sweep() {
+        long expired = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(deviceTimeout);
+        try {
+            lastSeen.forEach((deviceId, time) -> {
+                if (time < expired && lastSeen.remove(deviceId, time)) {
+                    deviceUnknown(deviceId);
+                }
+            });
+        } finally {
+            scheduleSweep();
+        }
     }
 
     public DeviceSession getDeviceSession(long deviceId) {
@@ -173,6 +196,7 @@ public class ConnectionManager implements BroadcastInterface {
 
         try {
             device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+            deviceLookupService.update(device);
             LOGGER.info("Automatically registered " + uniqueId);
             return device;
         } catch (StorageException e) {
@@ -213,6 +237,11 @@ public class ConnectionManager implements BroadcastInterface {
     }
 
     public void updateDevice(long deviceId, String status, Date time) {
+        boolean online = status.equals(Device.STATUS_ONLINE);
+        if (online && lastSeen.computeIfPresent(deviceId, (id, value) -> System.currentTimeMillis()) != null) {
+            return;
+        }
+
         Device device = cacheManager.getObject(Device.class, deviceId);
         if (device == null) {
             try {
@@ -226,25 +255,10 @@ public class ConnectionManager implements BroadcastInterface {
             }
         }
 
-        String oldStatus = device.getSituacao();
-        device.setSituacao(status);
-
-        if (!status.equals(oldStatus)) {
-            String eventType;
-            Map<Event, Position> events = new HashMap<>();
-            switch (status) {
-                case Device.STATUS_ONLINE:
-                    eventType = Event.TYPE_DEVICE_ONLINE;
-                    break;
-                case Device.STATUS_UNKNOWN:
-                    eventType = Event.TYPE_DEVICE_UNKNOWN;
-                    break;
-                default:
-                    eventType = Event.TYPE_DEVICE_OFFLINE;
-                    break;
-            }
-            events.put(new Event(eventType, deviceId), null);
-            notificationManager.updateEvents(events);
+        if (online) {
+            lastSeen.put(deviceId, System.currentTimeMillis());
+        } else {
+            lastSeen.remove(deviceId);
         }
 
         /* 
@@ -253,18 +267,27 @@ public class ConnectionManager implements BroadcastInterface {
         }
         */
 
-        Timeout timeout = timeouts.remove(deviceId);
-        if (timeout != null) {
-            timeout.cancel();
+        String oldStatus = device.getSituacao();
+        if (status.equals(oldStatus)) {
+            return;
         }
+        device.setSituacao(status);
 
-        if (status.equals(Device.STATUS_ONLINE)) {
-            timeouts.put(deviceId, timer.newTimeout(timeout1 -> {
-                if (!timeout1.isCancelled()) {
-                    deviceUnknown(deviceId);
-                }
-            }, deviceTimeout, TimeUnit.SECONDS));
+        String eventType;
+        Map<Event, Position> events = new HashMap<>();
+        switch (status) {
+            case Device.STATUS_ONLINE:
+                eventType = Event.TYPE_DEVICE_ONLINE;
+                break;
+            case Device.STATUS_UNKNOWN:
+                eventType = Event.TYPE_DEVICE_UNKNOWN;
+                break;
+            default:
+                eventType = Event.TYPE_DEVICE_OFFLINE;
+                break;
         }
+        events.put(new Event(eventType, deviceId), null);
+        notificationManager.updateEvents(events);
 
         try {
             storage.updateObject(device, new Request(
@@ -290,7 +313,7 @@ public class ConnectionManager implements BroadcastInterface {
         if (local) {
             broadcastService.updateDevice(true, device);
         } else if (Device.STATUS_ONLINE.equals(device.getSituacao())) {
-            timeouts.remove(device.getId());
+            lastSeen.remove(device.getId());
             removeDeviceSession(device.getId());
         }
         for (long userId : deviceUsers.getOrDefault(device.getId(), Collections.emptySet())) {
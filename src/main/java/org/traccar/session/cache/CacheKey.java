@@ -24,15 +24,19 @@ class CacheKey {
     private final Class<? extends BaseModel> clazz;
     private final long id;
 
-    CacheKey(BaseModel object) {
-        this(object.getClass(), object.getId());
-    }
-
     CacheKey(Class<? extends BaseModel> clazz, long id) {
         this.clazz = clazz;
         this.id = id;
     }
 
+    public Class<? extends BaseModel> getClazz() {
+        return clazz;
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public boolean classIs(Class<? extends BaseModel> clazz) {
         return clazz.equals(this.clazz);
     }
@@ -15,11 +15,16 @@
  */
 package org.traccar.session.cache;
 
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
 import org.traccar.broadcast.BroadcastInterface;
 import org.traccar.broadcast.BroadcastService;
 import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.geofence.GeofenceIndex;
 import org.traccar.model.Attribute;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Calendar;
@@ -42,27 +47,33 @@ import org.traccar.storage.query.Request;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-/* 
-    private static final Collection<Class<? extends BaseModel>> CLASSES = Arrays.asList(Attribute.class, Driver.class, Geofence.class, Maintenance.class, Notification.class);
-*/
-
 @Singleton
-public class CacheManager implements BroadcastInterface {
+public class CacheManager implements BroadcastInterface, LifecycleObject {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CacheManager.class);
     private static final int GROUP_DEPTH_LIMIT = 3;
@@ -72,90 +83,140 @@ public class CacheManager implements BroadcastInterface {
     private final Storage storage;
     private final BroadcastService broadcastService;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Collection<Class<? extends BaseModel>> classes;
+    private final GeofenceIndex geofenceIndex;
+
+    private final Lock lock = new ReentrantLock();
 
-    private final Map<CacheKey, CacheValue> deviceCache = new HashMap<>();
+    private final Map<Class<? extends BaseModel>, Map<Long, CacheValue>> deviceCache = new ConcurrentHashMap<>();
     private final Map<Long, Integer> deviceReferences = new HashMap<>();
     private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new HashMap<>();
-    private final Map<Long, Position> devicePositions = new HashMap<>();
-
-    private Server server;
-    private final Map<Long, List<User>> notificationUsers = new HashMap<>();
+    private final Map<Long, DeviceObjects> deviceObjects = new ConcurrentHashMap<>();
+    private final Map<Long, Position> devicePositions = new ConcurrentHashMap<>();
+    private final List<LongConsumer> releaseListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Server server;
+    private volatile Map<Long, List<User>> notificationUsers = Collections.emptyMap();
+
+    private final boolean warmup;
+
+    private final Timer timer;
+    private final long invalidationDelay;
+    private final ExecutorService invalidationExecutor;
+    private final Set<List<CacheKey>> pendingInvalidations = new LinkedHashSet<>();
+    private Timeout invalidationTimeout;
+
+    private final long retention;
+    private final int retentionLimit;
+    private final Map<Long, Long> releasedDevices = new LinkedHashMap<>();
+    private Timeout evictionTimeout;
+    private boolean stopped;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
     @Inject
-    public CacheManager(Config config, Storage storage, BroadcastService broadcastService) throws StorageException {
+    public CacheManager(
+            Config config, Storage storage, BroadcastService broadcastService, Timer timer) throws StorageException {
         this.config = config;
         this.storage = storage;
         this.broadcastService = broadcastService;
+        this.timer = timer;
+        if (config.getBoolean(Keys.GEOFENCE_ENABLE)) {
+            classes = new ArrayList<>(CLASSES);
+            classes.add(Geofence.class);
+        } else {
+            classes = CLASSES;
+        }
+        geofenceIndex = new GeofenceIndex(config);
+        invalidationDelay = config.getLong(Keys.DATABASE_CACHE_INVALIDATION_DELAY);
+        invalidationExecutor = invalidationDelay > 0 ? Executors.newSingleThreadExecutor() : null;
+        retention = config.getLong(Keys.DATABASE_CACHE_RETENTION);
+        retentionLimit = config.getInteger(Keys.DATABASE_CACHE_RETENTION_LIMIT);
         invalidateServer();
         //invalidateUsers();
+        warmup = config.getBoolean(Keys.DATABASE_CACHE_WARMUP);
+        if (warmup) {
+            warmup();
+        }
+        if (retention > 0 && !warmup) {
+            evictionTimeout = timer.newTimeout(this::evictDevices, retention, TimeUnit.MILLISECONDS);
+        }
         broadcastService.registerListener(this);
     }
 
+    private void warmup() throws StorageException {
+        long time = System.currentTimeMillis();
+        var source = new PreloadedCacheSource(storage, classes);
+        try {
+            lock.lock();
+            for (long deviceId : source.getDeviceIds()) {
+                unsafeAddDevice(deviceId, source);
+            }
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.info("Cache loaded for {} devices in {} ms",
+                deviceLinks.size(), System.currentTimeMillis() - time);
+    }
+
     public Config getConfig() {
         return config;
     }
 
+    public GeofenceIndex getGeofenceIndex() {
+        return geofenceIndex;
+    }
+
+    /**
+     * Registers a listener called with the device id when a device is released from the cache.
+     */
+    public void addReleaseListener(LongConsumer listener) {
+        releaseListeners.add(listener);
+    }
+
+    private CacheValue getCacheValue(Class<? extends BaseModel> clazz, long id) {
+        var values = deviceCache.get(clazz);
+        return values != null ? values.get(id) : null;
+    }
+
     public <T extends BaseModel> T getObject(Class<T> clazz, long id) {
-        try {
-            lock.readLock().lock();
-            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-            return cacheValue != null ? cacheValue.getValue() : null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        var cacheValue = getCacheValue(clazz, id);
+        return cacheValue != null ? cacheValue.getValue() : null;
     }
 
     public <T extends BaseModel> List<T> getDeviceObjects(long deviceId, Class<T> clazz) {
-        try {
-            lock.readLock().lock();
-            var links = deviceLinks.get(deviceId);
-            if (links != null) {
-                return links.getOrDefault(clazz, new LinkedHashSet<>()).stream()
-                        .map(id -> {
-                            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
-                            return cacheValue != null ? cacheValue.<T>getValue() : null;
-                        })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-            } else {
-                LOGGER.warn("Device {} cache missing", deviceId);
-                return Collections.emptyList();
-            }
-        } finally {
-            lock.readLock().unlock();
+        var objects = deviceObjects.get(deviceId);
+        if (objects != null) {
+            return objects.get(clazz);
+        } else {
+            LOGGER.warn("Device {} cache missing", deviceId);
+            return Collections.emptyList();
         }
     }
 
+    /**
+     * Value derived from the device, its groups and the server, computed once and kept until any of them changes.
+     */
+    public <T> T getDeviceValue(long deviceId, Object key, Supplier<T> supplier) {
+        var objects = deviceObjects.get(deviceId);
+        return objects != null ? objects.getValue(key, supplier) : supplier.get();
+    }
+
     public Position getPosition(long deviceId) {
-        try {
-            lock.readLock().lock();
-            return devicePositions.get(deviceId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return devicePositions.get(deviceId);
     }
 
     public Server getServer() {
-        try {
-            lock.readLock().lock();
-            return server;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return server;
     }
 
     public List<User> getNotificationUsers(long notificationId, long deviceId) {
-        try {
-            lock.readLock().lock();
-            var users = deviceLinks.get(deviceId).get(User.class).stream()
-                    .collect(Collectors.toUnmodifiableSet());
-            return notificationUsers.getOrDefault(notificationId, new LinkedList<>()).stream()
-                    .filter(user -> users.contains(user.getId()))
-                    .collect(Collectors.toUnmodifiableList());
-        } finally {
-            lock.readLock().unlock();
+        var objects = deviceObjects.get(deviceId);
+        if (objects == null) {
+            return Collections.emptyList();
         }
+        return objects.getNotificationUsers(notificationId, notificationUsers);
     }
 
     public Driver findDriverByUniqueId(long deviceId, String driverUniqueId) {
@@ -167,46 +228,91 @@ public class CacheManager implements BroadcastInterface {
 
     public void addDevice(long deviceId) throws StorageException {
         try {
-            lock.writeLock().lock();
+            lock.lock();
             Integer references = deviceReferences.get(deviceId);
             if (references != null) {
                 references += 1;
+                hits.incrementAndGet();
             } else {
-                unsafeAddDevice(deviceId);
+                releasedDevices.remove(deviceId);
+                if (deviceLinks.containsKey(deviceId)) {
+                    hits.incrementAndGet();
+                } else {
+                    misses.incrementAndGet();
+                    unsafeAddDevice(deviceId);
+                }
                 references = 1;
             }
             deviceReferences.put(deviceId, references);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     public void removeDevice(long deviceId) {
         try {
-            lock.writeLock().lock();
+            lock.lock();
             Integer references = deviceReferences.get(deviceId);
             if (references != null) {
                 references -= 1;
                 if (references <= 0) {
-                    unsafeRemoveDevice(deviceId);
+                    if (!warmup && retention > 0) {
+                        releasedDevices.put(deviceId, System.currentTimeMillis());
+                        unsafeEvictDevices();
+                    } else if (!warmup) {
+                        unsafeRemoveDevice(deviceId);
+                    }
                     deviceReferences.remove(deviceId);
                 } else {
                     deviceReferences.put(deviceId, references);
                 }
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
-    public void updatePosition(Position position) {
+    private void evictDevices(Timeout timeout) {
         try {
-            lock.writeLock().lock();
-            if (deviceLinks.containsKey(position.getRastreador_id())) {
-                devicePositions.put(position.getRastreador_id(), position);
+            lock.lock();
+            unsafeEvictDevices();
+            if (!stopped) {
+                evictionTimeout = timer.newTimeout(this::evictDevices, retention, TimeUnit.MILLISECONDS);
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
+        }
+    }
+
+    private void unsafeEvictDevices() {
+        long expiration = System.currentTimeMillis() - retention;
+        var iterator = releasedDevices.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (releasedDevices.size() <= retentionLimit && entry.getValue() > expiration) {
+                break;
+            }
+            iterator.remove();
+            unsafeRemoveDevice(entry.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public void updatePosition(Position position) {
+        if (deviceObjects.containsKey(position.getRastreador_id())) {
+            devicePositions.put(position.getRastreador_id(), position);
         }
     }
 
@@ -256,10 +362,17 @@ public class CacheManager implements BroadcastInterface {
             invalidate(object.getClass(), object.getId());
         } else {
             try {
-                lock.writeLock().lock();
-                deviceCache.get(new CacheKey(object.getClass(), object.getId())).setValue(object);
+                lock.lock();
+                var cacheValue = getCacheValue(object.getClass(), object.getId());
+                if (cacheValue != null) {
+                    cacheValue.setValue(object);
+                    indexObject(object);
+                    for (long deviceId : cacheValue.getReferences()) {
+                        updateDeviceObjects(deviceId);
+                    }
+                }
             } finally {
-                lock.writeLock().unlock();
+                lock.unlock();
             }
         }
     }
@@ -286,10 +399,11 @@ public class CacheManager implements BroadcastInterface {
 
     private void invalidateServer() throws StorageException {
         server = storage.getObject(Server.class, new Request(new Columns.All()));
+        deviceObjects.replaceAll((deviceId, objects) -> new DeviceObjects(objects));
     }
 
     private void invalidateUsers() throws StorageException {
-        notificationUsers.clear();
+        Map<Long, List<User>> notificationUsers = new HashMap<>();
         Map<Long, User> users = new HashMap<>();
         storage.getObjects(User.class, new Request(new Columns.All()))
                 .forEach(user -> users.put(user.getId(), user));
@@ -298,43 +412,72 @@ public class CacheManager implements BroadcastInterface {
             var user = users.get(permission.getOwnerId());
             notificationUsers.computeIfAbsent(notificationId, k -> new LinkedList<>()).add(user);
         });
+        this.notificationUsers = notificationUsers;
+        deviceObjects.replaceAll((deviceId, objects) -> new DeviceObjects(objects));
     }
 
     private void addObject(long deviceId, BaseModel object) {
-        deviceCache.computeIfAbsent(new CacheKey(object), k -> new CacheValue(object)).retain(deviceId);
+        var cacheValue = deviceCache.computeIfAbsent(object.getClass(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(object.getId(), k -> new CacheValue(object));
+        cacheValue.setValue(object);
+        cacheValue.retain(deviceId);
+        indexObject(object);
+    }
+
+    private void indexObject(BaseModel object) {
+        if (object instanceof Geofence) {
+            geofenceIndex.update((Geofence) object);
+        }
+    }
+
+    private void releaseObject(long deviceId, CacheKey key) {
+        var values = deviceCache.get(key.getClazz());
+        if (values == null) {
+            return;
+        }
+        values.computeIfPresent(key.getId(), (k, value) -> {
+            value.release(deviceId);
+            if (value.getReferences().size() > 0) {
+                return value;
+            }
+            if (key.classIs(Geofence.class)) {
+                geofenceIndex.remove(key.getId());
+            }
+            return null;
+        });
     }
 
     private void unsafeAddDevice(long deviceId) throws StorageException {
+        unsafeAddDevice(deviceId, new StorageCacheSource(storage));
+    }
+
+    private void unsafeAddDevice(long deviceId, CacheSource source) throws StorageException {
         Map<Class<? extends BaseModel>, Set<Long>> links = new HashMap<>();
 
-        Device device = storage.getObject(Device.class, new Request(
-                new Columns.All(), new Condition.Equals("id", deviceId)));
+        Device device = source.getDevice(deviceId);
         if (device != null) {
             addObject(deviceId, device);
 
             int groupDepth = 0;
             long groupId = device.getGroupId();
             while (groupDepth < GROUP_DEPTH_LIMIT && groupId > 0) {
-                Group group = storage.getObject(Group.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", groupId)));
+                Group group = source.getGroup(groupId);
                 links.computeIfAbsent(Group.class, k -> new LinkedHashSet<>()).add(group.getId());
                 addObject(deviceId, group);
                 groupId = group.getGroupId();
                 groupDepth += 1;
             }
 
-            for (Class<? extends BaseModel> clazz : CLASSES) {
-                var objects = storage.getObjects(clazz, new Request(
-                        new Columns.All(), new Condition.Permission(Device.class, deviceId, clazz)));
+            for (Class<? extends BaseModel> clazz : classes) {
+                var objects = source.getDeviceObjects(deviceId, clazz);
                 links.put(clazz, objects.stream().map(BaseModel::getId).collect(Collectors.toSet()));
                 for (var object : objects) {
                     addObject(deviceId, object);
                     if (object instanceof ScheduledModel) {
                         var scheduled = (ScheduledModel) object;
                         if (scheduled.getCalendarId() > 0) {
-                            var calendar = storage.getObject(Calendar.class, new Request(
-                                    new Columns.All(), new Condition.Equals("id", scheduled.getCalendarId())));
-                            links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>())
+                            var calendar = source.getCalendar(scheduled.getCalendarId());
+                            links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>())
                                     .add(calendar.getId());
                             addObject(deviceId, calendar);
                         }
@@ -342,14 +485,11 @@ public class CacheManager implements BroadcastInterface {
                 }
             }
 
-            var users = storage.getObjects(User.class, new Request(
-                    new Columns.All(), new Condition.Permission(User.class, Device.class, deviceId)));
+            var users = source.getDeviceUsers(deviceId);
             links.put(User.class, users.stream().map(BaseModel::getId).collect(Collectors.toSet()));
             for (var user : users) {
                 addObject(deviceId, user);
-                var notifications = storage.getObjects(Notification.class, new Request(
-                        new Columns.All(),
-                        new Condition.Permission(User.class, user.getId(), Notification.class))).stream()
+                var notifications = source.getUserNotifications(user.getId()).stream()
                         .filter(Notification::getAlways)
                         .collect(Collectors.toList());
                 for (var notification : notifications) {
@@ -357,9 +497,8 @@ public class CacheManager implements BroadcastInterface {
                             .add(notification.getId());
                     addObject(deviceId, notification);
                     if (notification.getCalendarId() > 0) {
-                        var calendar = storage.getObject(Calendar.class, new Request(
-                                new Columns.All(), new Condition.Equals("id", notification.getCalendarId())));
-                        links.computeIfAbsent(Notification.class, k -> new LinkedHashSet<>())
+                        var calendar = source.getCalendar(notification.getCalendarId());
+                        links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>())
                                 .add(calendar.getId());
                         addObject(deviceId, calendar);
                     }
@@ -367,62 +506,289 @@ public class CacheManager implements BroadcastInterface {
             }
 
             deviceLinks.put(deviceId, links);
+            updateDeviceObjects(deviceId);
 
             if (device.getRastreador_posicao_id() > 0) {
-                devicePositions.put(deviceId, storage.getObject(Position.class, new Request(
-                        new Columns.All(), new Condition.Equals("id", device.getRastreador_posicao_id()))));
+                var position = source.getPosition(device.getRastreador_posicao_id());
+                if (position != null) {
+                    devicePositions.put(deviceId, position);
+                }
             }
         }
     }
 
-    private void unsafeRemoveDevice(long deviceId) {
-        deviceCache.remove(new CacheKey(Device.class, deviceId));
-        deviceLinks.remove(deviceId).forEach((clazz, ids) -> ids.forEach(id -> {
-            var key = new CacheKey(clazz, id);
-            deviceCache.computeIfPresent(key, (k, value) -> {
-                value.release(deviceId);
-                return value.getReferences().size() > 0 ? value : null;
-            });
+    private void updateDeviceObjects(long deviceId) {
+        var links = deviceLinks.get(deviceId);
+        if (links != null) {
+            deviceObjects.put(deviceId, new DeviceObjects(links, deviceCache));
+        }
+    }
+
+    private void releaseLinks(
+            long deviceId,
+            Map<Class<? extends BaseModel>, Set<Long>> links,
+            Map<Class<? extends BaseModel>, Set<Long>> retained) {
+        if (links == null) {
+            return;
+        }
+        links.forEach((clazz, ids) -> ids.forEach(id -> {
+            if (!retained.getOrDefault(clazz, Collections.emptySet()).contains(id)) {
+                releaseObject(deviceId, new CacheKey(clazz, id));
+            }
         }));
+    }
+
+    private void unsafeRemoveDevice(long deviceId) {
+        deviceObjects.remove(deviceId);
+        var devices = deviceCache.get(Device.class);
+        if (devices != null) {
+            devices.remove(deviceId);
+        }
+        releaseLinks(deviceId, deviceLinks.remove(deviceId), Collections.emptyMap());
         devicePositions.remove(deviceId);
+        releaseListeners.forEach(listener -> listener.accept(deviceId));
+    }
+
+    private void unsafeReloadDevice(long deviceId) throws StorageException {
+        var links = deviceLinks.remove(deviceId);
+        unsafeAddDevice(deviceId);
+        var retained = deviceLinks.get(deviceId);
+        if (retained != null) {
+            releaseLinks(deviceId, links, retained);
+        } else {
+            deviceLinks.put(deviceId, links);
+            unsafeRemoveDevice(deviceId);
+        }
     }
 
     private void invalidate(CacheKey... keys) throws StorageException {
+        if (invalidationDelay > 0) {
+            synchronized (pendingInvalidations) {
+                pendingInvalidations.add(List.of(keys));
+                if (invalidationTimeout == null) {
+                    invalidationTimeout = timer.newTimeout(
+                            timeout -> invalidationExecutor.execute(this::flushInvalidations),
+                            invalidationDelay, TimeUnit.MILLISECONDS);
+                }
+            }
+        } else {
+            applyInvalidations(List.of(List.of(keys)));
+        }
+    }
+
+    private void flushInvalidations() {
+        List<List<CacheKey>> invalidations;
+        synchronized (pendingInvalidations) {
+            invalidations = new ArrayList<>(pendingInvalidations);
+            pendingInvalidations.clear();
+            invalidationTimeout = null;
+        }
+        try {
+            applyInvalidations(invalidations);
+        } catch (StorageException | RuntimeException e) {
+            LOGGER.warn("Cache invalidation error", e);
+        }
+    }
+
+    private void applyInvalidations(Collection<List<CacheKey>> invalidations) throws StorageException {
+        long time;
         try {
-            lock.writeLock().lock();
-            unsafeInvalidate(keys);
+            lock.lock();
+            time = System.nanoTime();
+            unsafeInvalidate(invalidations);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
+        LOGGER.debug("Cache invalidation of {} changes held lock for {} ms",
+                invalidations.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time));
     }
 
-    private void unsafeInvalidate(CacheKey[] keys) throws StorageException {
+    private void unsafeInvalidate(Collection<List<CacheKey>> invalidations) throws StorageException {
         boolean invalidateServer = false;
         boolean invalidateUsers = false;
-        Set<Long> linkedDevices = new HashSet<>();
-        for (var key : keys) {
-            if (key.classIs(Server.class)) {
-                invalidateServer = true;
-            } else {
-                if (key.classIs(User.class) || key.classIs(Notification.class)) {
+        for (var keys : invalidations) {
+            for (var key : keys) {
+                if (key.classIs(Server.class)) {
+                    invalidateServer = true;
+                } else if (key.classIs(User.class) || key.classIs(Notification.class)) {
                     invalidateUsers = true;
                 }
-                deviceCache.computeIfPresent(key, (k, value) -> {
-                    linkedDevices.addAll(value.getReferences());
-                    return value;
-                });
             }
         }
-        for (long deviceId : linkedDevices) {
-            unsafeRemoveDevice(deviceId);
-            unsafeAddDevice(deviceId);
-        }
         if (invalidateServer) {
             invalidateServer();
         }
         if (invalidateUsers) {
             invalidateUsers();
         }
+
+        Set<Long> reloadedDevices = new HashSet<>();
+        Set<Long> updatedDevices = new HashSet<>();
+        for (var keys : invalidations) {
+            if (keys.size() == 1) {
+                unsafeInvalidateObject(keys.get(0), reloadedDevices, updatedDevices);
+            } else {
+                unsafeInvalidateLink(keys.get(0), keys.get(1), reloadedDevices, updatedDevices);
+            }
+        }
+        for (long deviceId : reloadedDevices) {
+            unsafeReloadDevice(deviceId);
+        }
+        updatedDevices.removeAll(reloadedDevices);
+        for (long deviceId : updatedDevices) {
+            updateDeviceObjects(deviceId);
+        }
+    }
+
+    private Set<Long> getReferences(CacheKey key) {
+        var cacheValue = getCacheValue(key.getClazz(), key.getId());
+        return cacheValue != null ? Set.copyOf(cacheValue.getReferences()) : Collections.emptySet();
+    }
+
+    private void unsafeInvalidateObject(
+            CacheKey key, Set<Long> reloadedDevices, Set<Long> updatedDevices) throws StorageException {
+        if (key.classIs(Server.class) || getCacheValue(key.getClazz(), key.getId()) == null) {
+            return;
+        }
+        var object = storage.getObject(key.getClazz(), new Request(
+                new Columns.All(), new Condition.Equals("id", key.getId())));
+        if (object != null) {
+            reloadedDevices.addAll(getReferences(key));
+        } else if (key.classIs(Device.class)) {
+            reloadedDevices.add(key.getId());
+        } else {
+            for (long deviceId : getReferences(key)) {
+                unsafeUnlinkObject(deviceId, key);
+                updatedDevices.add(deviceId);
+            }
+        }
+    }
+
+    private void unsafeInvalidateLink(
+            CacheKey owner, CacheKey property,
+            Set<Long> reloadedDevices, Set<Long> updatedDevices) throws StorageException {
+        long ownerId = owner.getId();
+        long propertyId = property.getId();
+        if (owner.classIs(Device.class) && classes.contains(property.getClazz())) {
+            if (deviceLinks.containsKey(ownerId)) {
+                boolean linked = !storage.getPermissions(
+                        Device.class, ownerId, property.getClazz(), propertyId).isEmpty();
+                if (linked) {
+                    var object = storage.getObject(property.getClazz(), new Request(
+                            new Columns.All(), new Condition.Equals("id", propertyId)));
+                    if (object != null) {
+                        unsafeLinkObject(ownerId, object);
+                    }
+                } else {
+                    unsafeUnlinkObject(ownerId, property);
+                }
+                updatedDevices.add(ownerId);
+            }
+        } else if (owner.classIs(User.class) && property.classIs(Device.class)) {
+            if (deviceLinks.containsKey(propertyId)) {
+                reloadedDevices.add(propertyId);
+            }
+        } else if (owner.classIs(User.class) && property.classIs(Notification.class)) {
+            var devices = getReferences(owner);
+            if (!devices.isEmpty()) {
+                var notification = storage.getObject(Notification.class, new Request(
+                        new Columns.All(), new Condition.Equals("id", propertyId)));
+                var users = notificationUsers.getOrDefault(propertyId, Collections.emptyList()).stream()
+                        .filter(Objects::nonNull)
+                        .map(BaseModel::getId)
+                        .collect(Collectors.toSet());
+                for (long deviceId : devices) {
+                    var deviceUsers = deviceLinks.get(deviceId).getOrDefault(User.class, Collections.emptySet());
+                    if (notification != null && notification.getAlways()
+                            && deviceUsers.stream().anyMatch(users::contains)) {
+                        unsafeLinkObject(deviceId, notification);
+                    } else {
+                        unsafeUnlinkObject(deviceId, property);
+                    }
+                    updatedDevices.add(deviceId);
+                }
+            }
+        } else {
+            reloadedDevices.addAll(getReferences(owner));
+            reloadedDevices.addAll(getReferences(property));
+        }
+    }
+
+    private void unsafeLinkObject(long deviceId, BaseModel object) throws StorageException {
+        var links = deviceLinks.get(deviceId);
+        links.computeIfAbsent(object.getClass(), k -> new LinkedHashSet<>()).add(object.getId());
+        addObject(deviceId, object);
+        if (object instanceof ScheduledModel) {
+            long calendarId = ((ScheduledModel) object).getCalendarId();
+            if (calendarId > 0) {
+                var calendar = storage.getObject(Calendar.class, new Request(
+                        new Columns.All(), new Condition.Equals("id", calendarId)));
+                if (calendar != null) {
+                    links.computeIfAbsent(Calendar.class, k -> new LinkedHashSet<>()).add(calendar.getId());
+                    addObject(deviceId, calendar);
+                }
+            }
+        }
+    }
+
+    private void unsafeUnlinkObject(long deviceId, CacheKey key) {
+        var links = deviceLinks.get(deviceId);
+        if (links != null) {
+            var ids = links.get(key.getClazz());
+            if (ids != null && ids.remove(key.getId())) {
+                BaseModel object = getObject(key.getClazz(), key.getId());
+                releaseObject(deviceId, key);
+                if (object instanceof ScheduledModel) {
+                    unsafeUnlinkCalendar(deviceId, links, ((ScheduledModel) object).getCalendarId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the calendar of an unlinked object, unless another object linked to the device still uses it.
+     */
+    private void unsafeUnlinkCalendar(
+            long deviceId, Map<Class<? extends BaseModel>, Set<Long>> links, long calendarId) {
+        var calendars = links.get(Calendar.class);
+        if (calendarId <= 0 || calendars == null || !calendars.contains(calendarId)) {
+            return;
+        }
+        for (var entry : links.entrySet()) {
+            for (long id : entry.getValue()) {
+                BaseModel linked = getObject(entry.getKey(), id);
+                if (linked instanceof ScheduledModel && ((ScheduledModel) linked).getCalendarId() == calendarId) {
+                    return;
+                }
+            }
+        }
+        calendars.remove(calendarId);
+        releaseObject(deviceId, new CacheKey(Calendar.class, calendarId));
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        try {
+            lock.lock();
+            stopped = true;
+            if (evictionTimeout != null) {
+                evictionTimeout.cancel();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (invalidationExecutor != null) {
+            invalidationExecutor.shutdown();
+        }
+        long total = hits.get() + misses.get();
+        if (total > 0) {
+            LOGGER.info("Device cache hits: {}, misses: {} ({}% hit rate), evictions: {}",
+                    hits.get(), misses.get(), hits.get() * 100 / total, evictions.get());
+        }
     }
 
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Notification;
+import org.traccar.model.Position;
+import org.traccar.model.User;
+import org.traccar.storage.StorageException;
+
+import java.util.List;
+
+interface CacheSource {
+
+    Device getDevice(long deviceId) throws StorageException;
+
+    Group getGroup(long groupId) throws StorageException;
+
+    Calendar getCalendar(long calendarId) throws StorageException;
+
+    List<? extends BaseModel> getDeviceObjects(long deviceId, Class<? extends BaseModel> clazz)
+            throws StorageException;
+
+    List<User> getDeviceUsers(long deviceId) throws StorageException;
+
+    List<Notification> getUserNotifications(long userId) throws StorageException;
+
+    Position getPosition(long positionId) throws StorageException;
+
+}
@@ -22,7 +22,7 @@ import java.util.Set;
 
 class CacheValue {
 
-    private BaseModel value;
+    private volatile BaseModel value;
     private final Set<Long> references = new HashSet<>();
 
     CacheValue(BaseModel value) {
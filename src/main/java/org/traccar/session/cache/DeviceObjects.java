@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of the objects linked to a device. A new instance replaces the old one whenever any of the linked
+ * objects changes, so readers never need a lock. Values derived from the objects, such as resolved settings, are
+ * memoized with the instance and discarded together with it.
+ */
+class DeviceObjects {
+
+    private static final Object NULL = new Object();
+
+    private final Map<Class<? extends BaseModel>, List<BaseModel>> objects;
+    private final Set<Long> userIds;
+    private final Map<Object, Object> values = new ConcurrentHashMap<>();
+    private final Map<Long, List<User>> notificationUsers = new ConcurrentHashMap<>();
+
+    DeviceObjects(
+            Map<Class<? extends BaseModel>, Set<Long>> links,
+            Map<Class<? extends BaseModel>, Map<Long, CacheValue>> cache) {
+        Map<Class<? extends BaseModel>, List<BaseModel>> objects = new HashMap<>();
+        links.forEach((clazz, ids) -> {
+            var cacheValues = cache.getOrDefault(clazz, Collections.emptyMap());
+            List<BaseModel> values = new ArrayList<>(ids.size());
+            for (long id : ids) {
+                CacheValue value = cacheValues.get(id);
+                if (value != null) {
+                    values.add(value.getValue());
+                }
+            }
+            objects.put(clazz, Collections.unmodifiableList(values));
+        });
+        this.objects = objects;
+        this.userIds = Set.copyOf(links.getOrDefault(User.class, Collections.emptySet()));
+    }
+
+    DeviceObjects(DeviceObjects other) {
+        this.objects = other.objects;
+        this.userIds = other.userIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends BaseModel> List<T> get(Class<T> clazz) {
+        return (List<T>) objects.getOrDefault(clazz, Collections.emptyList());
+    }
+
+    public Set<Long> getUserIds() {
+        return userIds;
+    }
+
+    /**
+     * Users of the notification who can see this device, filtered on first use.
+     */
+    public List<User> getNotificationUsers(long notificationId, Map<Long, List<User>> notificationUsers) {
+        List<User> users = this.notificationUsers.get(notificationId);
+        if (users == null) {
+            users = notificationUsers.getOrDefault(notificationId, Collections.emptyList()).stream()
+                    .filter(user -> userIds.contains(user.getId()))
+                    .collect(Collectors.toUnmodifiableList());
+            this.notificationUsers.putIfAbsent(notificationId, users);
+        }
+        return users;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(Object key, Supplier<T> supplier) {
+        Object value = values.get(key);
+        if (value == null) {
+            value = supplier.get();
+            values.putIfAbsent(key, value != null ? value : NULL);
+        }
+        return value != NULL ? (T) value : null;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Notification;
+import org.traccar.model.Permission;
+import org.traccar.model.Position;
+import org.traccar.model.User;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot of all cache objects and links, loaded with one query per table.
+ */
+class PreloadedCacheSource implements CacheSource {
+
+    private final Map<Long, Device> devices;
+    private final Map<Long, Group> groups;
+    private final Map<Long, Calendar> calendars;
+    private final Map<Long, User> users;
+    private final Map<Long, Notification> notifications;
+    private final Map<Long, Position> positions;
+    private final Map<Class<? extends BaseModel>, Map<Long, ? extends BaseModel>> objects = new HashMap<>();
+
+    private final Map<Class<? extends BaseModel>, Map<Long, Set<Long>>> deviceLinks = new HashMap<>();
+    private final Map<Long, Set<Long>> deviceUsers;
+    private final Map<Long, Set<Long>> userNotifications;
+
+    PreloadedCacheSource(Storage storage, Collection<Class<? extends BaseModel>> classes) throws StorageException {
+        devices = load(storage, Device.class);
+        groups = load(storage, Group.class);
+        calendars = load(storage, Calendar.class);
+        users = load(storage, User.class);
+        notifications = load(storage, Notification.class);
+        positions = load(storage, Position.class, new Condition.LatestPositions());
+        for (var clazz : classes) {
+            objects.put(clazz, load(storage, clazz));
+            deviceLinks.put(clazz, group(storage.getPermissions(Device.class, clazz), false));
+        }
+        deviceUsers = group(storage.getPermissions(User.class, Device.class), true);
+        userNotifications = group(storage.getPermissions(User.class, Notification.class), false);
+    }
+
+    private static <T extends BaseModel> Map<Long, T> load(
+            Storage storage, Class<T> clazz, Condition condition) throws StorageException {
+        return storage.getObjects(clazz, new Request(new Columns.All(), condition)).stream()
+                .collect(Collectors.toMap(BaseModel::getId, Function.identity(), (first, second) -> first));
+    }
+
+    private static <T extends BaseModel> Map<Long, T> load(Storage storage, Class<T> clazz) throws StorageException {
+        return load(storage, clazz, null);
+    }
+
+    private static Map<Long, Set<Long>> group(List<Permission> permissions, boolean byProperty) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for (Permission permission : permissions) {
+            long key = byProperty ? permission.getPropertyId() : permission.getOwnerId();
+            long value = byProperty ? permission.getOwnerId() : permission.getPropertyId();
+            result.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(value);
+        }
+        return result;
+    }
+
+    private static <T> List<T> resolve(Set<Long> ids, Map<Long, ? extends T> values) {
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(values::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    public Collection<Long> getDeviceIds() {
+        return devices.keySet();
+    }
+
+    @Override
+    public Device getDevice(long deviceId) {
+        return devices.get(deviceId);
+    }
+
+    @Override
+    public Group getGroup(long groupId) {
+        return groups.get(groupId);
+    }
+
+    @Override
+    public Calendar getCalendar(long calendarId) {
+        return calendars.get(calendarId);
+    }
+
+    @Override
+    public List<? extends BaseModel> getDeviceObjects(long deviceId, Class<? extends BaseModel> clazz) {
+        return resolve(deviceLinks.get(clazz).get(deviceId), objects.get(clazz));
+    }
+
+    @Override
+    public List<User> getDeviceUsers(long deviceId) {
+        return resolve(deviceUsers.get(deviceId), users);
+    }
+
+    @Override
+    public List<Notification> getUserNotifications(long userId) {
+        return resolve(userNotifications.get(userId), notifications);
+    }
+
+    @Override
+    public Position getPosition(long positionId) {
+        return positions.get(positionId);
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.cache;
+
+import org.traccar.model.BaseModel;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Notification;
+import org.traccar.model.Position;
+import org.traccar.model.User;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.util.List;
+
+/**
+ * Loads cache objects of a single device with individual queries.
+ */
+class StorageCacheSource implements CacheSource {
+
+    private final Storage storage;
+
+    StorageCacheSource(Storage storage) {
+        this.storage = storage;
+    }
+
+    private <T> T getObject(Class<T> clazz, long id) throws StorageException {
+        return storage.getObject(clazz, new Request(new Columns.All(), new Condition.Equals("id", id)));
+    }
+
+    @Override
+    public Device getDevice(long deviceId) throws StorageException {
+        return getObject(Device.class, deviceId);
+    }
+
+    @Override
+    public Group getGroup(long groupId) throws StorageException {
+        return getObject(Group.class, groupId);
+    }
+
+    @Override
+    public Calendar getCalendar(long calendarId) throws StorageException {
+        return getObject(Calendar.class, calendarId);
+    }
+
+    @Override
+    public List<? extends BaseModel> getDeviceObjects(long deviceId, Class<? extends BaseModel> clazz)
+            throws StorageException {
+        return storage.getObjects(clazz, new Request(
+                new Columns.All(), new Condition.Permission(Device.class, deviceId, clazz)));
+    }
+
+    @Override
+    public List<User> getDeviceUsers(long deviceId) throws StorageException {
+        return storage.getObjects(User.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, Device.class, deviceId)));
+    }
+
+    @Override
+    public List<Notification> getUserNotifications(long userId) throws StorageException {
+        return storage.getObjects(Notification.class, new Request(
+                new Columns.All(), new Condition.Permission(User.class, userId, Notification.class)));
+    }
+
+    @Override
+    public Position getPosition(long positionId) throws StorageException {
+        return getObject(Position.class, positionId);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.state;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps detection state of devices handled by this server in memory. Changed state is written to the state file
+ * periodically and on shutdown, and restored on startup. State of devices that no longer exist is dropped.
+ */
+@Singleton
+public class DeviceStateManager implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceStateManager.class);
+
+    private static final long PRUNE_INTERVAL = 3600;
+
+    private final ObjectMapper objectMapper;
+    private final Storage storage;
+    private final Path file;
+    private final long checkpointInterval;
+
+    private final Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final Map<Long, DeviceState> saved = new HashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    @Inject
+    public DeviceStateManager(Config config, ObjectMapper objectMapper, Storage storage) {
+        this.objectMapper = objectMapper;
+        this.storage = storage;
+        file = config.hasKey(Keys.STATE_FILE) ? Paths.get(config.getString(Keys.STATE_FILE)) : null;
+        checkpointInterval = config.getLong(Keys.STATE_CHECKPOINT_INTERVAL);
+        restore();
+    }
+
+    public DeviceState getState(long deviceId) {
+        return states.computeIfAbsent(deviceId, id -> new DeviceState());
+    }
+
+    public void setChanged(long deviceId) {
+        changed.add(deviceId);
+    }
+
+    private void restore() {
+        if (file != null && Files.exists(file)) {
+            try {
+                states.putAll(objectMapper.readValue(file.toFile(), new TypeReference<Map<Long, DeviceState>>() {
+                }));
+                states.forEach((deviceId, state) -> saved.put(deviceId, objectMapper.convertValue(
+                        state, DeviceState.class)));
+                LOGGER.info("Restored state of {} devices", states.size());
+            } catch (IOException e) {
+                LOGGER.warn("Failed to restore device state", e);
+            }
+            prune();
+        }
+    }
+
+    private void prune() {
+        try {
+            Set<Long> deviceIds = storage.getObjects(Device.class, new Request(new Columns.Include("id"))).stream()
+                    .map(Device::getId)
+                    .collect(Collectors.toSet());
+            states.keySet().forEach(deviceId -> {
+                if (!deviceIds.contains(deviceId)) {
+                    states.remove(deviceId);
+                    changed.add(deviceId);
+                }
+            });
+        } catch (StorageException e) {
+            LOGGER.warn("Failed to prune device state", e);
+        }
+    }
+
+    private synchronized void checkpoint() {
+        if (file == null || changed.isEmpty()) {
+            return;
+        }
+        Set<Long> updated = new HashSet<>();
+        for (var iterator = changed.iterator(); iterator.hasNext();) {
+            updated.add(iterator.next());
+            iterator.remove();
+        }
+        for (long deviceId : updated) {
+            DeviceState state = states.get(deviceId);
+            if (state != null) {
+                synchronized (state) {
+                    saved.put(deviceId, objectMapper.convertValue(state, DeviceState.class));
+                }
+            } else {
+                saved.remove(deviceId);
+            }
+        }
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), saved);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Saved state of {} devices, {} changed", saved.size(), updated.size());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to save device state", e);
+            changed.addAll(updated);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (file != null && checkpointInterval > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor();
+            executor.scheduleWithFixedDelay(
+                    this::checkpoint, checkpointInterval, checkpointInterval, TimeUnit.SECONDS);
+            executor.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        checkpoint();
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.session.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.geofence.GeofenceIndex;
+import org.traccar.helper.DistanceCalculator;
+import org.traccar.helper.model.GeofenceUtil;
+import org.traccar.helper.model.PositionUtil;
+import org.traccar.model.Geofence;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks geofence membership of devices incrementally. Each device keeps the geofences it was last found in, the
+ * index cell of that position and the distance to the nearest geofence boundary. Geometry is only checked again when
+ * a position leaves the cell or moves further than that distance, or when geofences or device links change. Initial
+ * membership is computed from the last known position, because geofence ids are not stored with positions.
+ */
+@Singleton
+public class GeofenceTracker implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeofenceTracker.class);
+
+    private final Config config;
+    private final CacheManager cacheManager;
+
+    private final Map<Long, GeofenceState> states = new ConcurrentHashMap<>();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    private static final class GeofenceState {
+
+        private List<Long> geofenceIds;
+
+        private Set<Long> deviceGeofences;
+        private long version = -1;
+        private long cell;
+        private double latitude;
+        private double longitude;
+        private double safeDistance;
+
+        private Position position;
+        private List<Long> entered = Collections.emptyList();
+        private List<Long> exited = Collections.emptyList();
+
+        private GeofenceState(List<Long> geofenceIds) {
+            this.geofenceIds = geofenceIds;
+        }
+
+    }
+
+    @Inject
+    public GeofenceTracker(Config config, CacheManager cacheManager) {
+        this.config = config;
+        this.cacheManager = cacheManager;
+        cacheManager.addReleaseListener(states::remove);
+    }
+
+    public long getChecked() {
+        return checked.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Geofences containing the position. For the latest position of a device the transition from the previous
+     * position is recorded as well.
+     */
+    public List<Long> update(Position position) {
+        long deviceId = position.getRastreador_id();
+        Set<Long> deviceGeofences = GeofenceUtil.getDeviceGeofences(cacheManager, deviceId);
+        if (!PositionUtil.isLatest(cacheManager, position)) {
+            checked.incrementAndGet();
+            return GeofenceUtil.getCurrentGeofences(config, cacheManager, position);
+        }
+
+        GeofenceState state = states.computeIfAbsent(deviceId, id -> {
+            Position lastPosition = cacheManager.getPosition(id);
+            return new GeofenceState(lastPosition != null
+                    ? GeofenceUtil.getCurrentGeofences(config, cacheManager, lastPosition) : Collections.emptyList());
+        });
+
+        GeofenceIndex geofenceIndex = cacheManager.getGeofenceIndex();
+        double latitude = position.getLatitude();
+        double longitude = position.getLongitude();
+        long version = geofenceIndex.getVersion();
+        long cell = GeofenceIndex.getCellKey(latitude, longitude);
+
+        synchronized (state) {
+            List<Long> geofenceIds;
+            if (state.version == version && state.deviceGeofences == deviceGeofences && state.cell == cell
+                    && DistanceCalculator.distance(state.latitude, state.longitude, latitude, longitude)
+                    < state.safeDistance) {
+                skipped.incrementAndGet();
+                geofenceIds = state.geofenceIds;
+            } else {
+                checked.incrementAndGet();
+                geofenceIds = new ArrayList<>();
+                double safeDistance = Double.MAX_VALUE;
+                if (!deviceGeofences.isEmpty()) {
+                    for (Geofence geofence : geofenceIndex.findCell(latitude, longitude)) {
+                        if (deviceGeofences.contains(geofence.getId())) {
+                            var geometry = geofence.getGeometry();
+                            if (geometry.containsPoint(config, geofence, latitude, longitude)) {
+                                geofenceIds.add(geofence.getId());
+                            }
+                            safeDistance = Math.min(
+                                    safeDistance, geometry.distanceToBoundary(config, geofence, latitude, longitude));
+                        }
+                    }
+                }
+                state.deviceGeofences = deviceGeofences;
+                state.version = version;
+                state.cell = cell;
+                state.latitude = latitude;
+                state.longitude = longitude;
+                state.safeDistance = safeDistance;
+            }
+
+            List<Long> entered = new ArrayList<>(geofenceIds);
+            entered.removeAll(state.geofenceIds);
+            List<Long> exited = new ArrayList<>(state.geofenceIds);
+            exited.removeAll(geofenceIds);
+
+            state.position = position;
+            state.entered = entered;
+            state.exited = exited;
+            state.geofenceIds = geofenceIds;
+            return geofenceIds;
+        }
+    }
+
+    /**
+     * Geofences entered with the position, or null if the position wasn't the latest one tracked for the device.
+     */
+    public List<Long> getEntered(Position position) {
+        GeofenceState state = states.get(position.getRastreador_id());
+        if (state != null) {
+            synchronized (state) {
+                return state.position == position ? state.entered : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Geofences exited with the position, or null if the position wasn't the latest one tracked for the device.
+     */
+    public List<Long> getExited(Position position) {
+        GeofenceState state = states.get(position.getRastreador_id());
+        if (state != null) {
+            synchronized (state) {
+                return state.position == position ? state.exited : null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        long total = checked.get() + skipped.get();
+        if (total > 0) {
+            LOGGER.info("Geofence positions: {}, geometry checks skipped: {} ({}%)",
+                    total, skipped.get(), skipped.get() * 100 / total);
+        }
+    }
+
+}
@@ -15,27 +15,30 @@
  */
 package org.traccar.session.state;
 
-import org.traccar.model.Device;
 import org.traccar.model.Event;
 
 import java.util.Date;
 
 public class MotionState {
 
-    public static MotionState fromDevice(Device device) {
+    public static MotionState fromDeviceState(DeviceState deviceState) {
         MotionState state = new MotionState();
-        /*state.motionStreak = device.getMotionStreak();
-        state.motionState = device.getMotionState();
-        state.motionTime = device.getMotionTime();
-        state.motionDistance = device.getMotionDistance();*/
+        synchronized (deviceState) {
+            state.motionStreak = deviceState.getMotionStreak();
+            state.motionState = deviceState.getMotionState();
+            state.motionTime = deviceState.getMotionTime();
+            state.motionDistance = deviceState.getMotionDistance();
+        }
         return state;
     }
 
-    public void toDevice(Device device) {
-        /*device.setMotionStreak(motionStreak);
-        device.setMotionState(motionState);
-        device.setMotionTime(motionTime);
-        device.setMotionDistance(motionDistance);*/
+    public void toDeviceState(DeviceState deviceState) {
+        synchronized (deviceState) {
+            deviceState.setMotionStreak(motionStreak);
+            deviceState.setMotionState(motionState);
+            deviceState.setMotionTime(motionTime);
+            deviceState.setMotionDistance(motionDistance);
+        }
     }
 
     private boolean changed;
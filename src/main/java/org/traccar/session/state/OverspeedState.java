@@ -15,25 +15,28 @@
  */
 package org.traccar.session.state;
 
-import org.traccar.model.Device;
 import org.traccar.model.Event;
 
 import java.util.Date;
 
 public class OverspeedState {
 
-    public static OverspeedState fromDevice(Device device) {
+    public static OverspeedState fromDeviceState(DeviceState deviceState) {
         OverspeedState state = new OverspeedState();
-        /*state.overspeedState = device.getOverspeedState();
-        state.overspeedTime = device.getOverspeedTime();
-        state.overspeedGeofenceId = device.getOverspeedGeofenceId();*/
+        synchronized (deviceState) {
+            state.overspeedState = deviceState.getOverspeedState();
+            state.overspeedTime = deviceState.getOverspeedTime();
+            state.overspeedGeofenceId = deviceState.getOverspeedGeofenceId();
+        }
         return state;
     }
 
-    public void toDevice(Device device) {
-        /*device.setOverspeedState(overspeedState);
-        device.setOverspeedTime(overspeedTime);
-        device.setOverspeedGeofenceId(overspeedGeofenceId);*/
+    public void toDeviceState(DeviceState deviceState) {
+        synchronized (deviceState) {
+            deviceState.setOverspeedState(overspeedState);
+            deviceState.setOverspeedTime(overspeedTime);
+            deviceState.setOverspeedGeofenceId(overspeedGeofenceId);
+        }
     }
 
     private boolean changed;
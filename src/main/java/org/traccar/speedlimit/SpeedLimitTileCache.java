@@ -0,0 +1,350 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.speedlimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.traccar.LifecycleObject;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.DistanceCalculator;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Roads with speed limits grouped by map tile. Tiles are either downloaded on demand and kept up to the configured
+ * number, or all loaded from an offline OSM extract on startup.
+ */
+@Singleton
+public class SpeedLimitTileCache implements LifecycleObject {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpeedLimitTileCache.class);
+
+    public static final double TILE_SIZE = 0.05;
+    public static final double SEARCH_DISTANCE = 100;
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private static final long RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Road segments of a tile, stored as latitude and longitude of both ends followed by the speed limit in knots.
+     */
+    public static final class Tile {
+
+        private static final int STRIDE = 5;
+
+        private final double[] segments;
+        private final long expiration;
+
+        public Tile(List<double[]> segments) {
+            this(segments, 0);
+        }
+
+        private Tile(List<double[]> segments, long expiration) {
+            this.segments = new double[segments.size() * STRIDE];
+            for (int i = 0; i < segments.size(); i++) {
+                System.arraycopy(segments.get(i), 0, this.segments, i * STRIDE, STRIDE);
+            }
+            this.expiration = expiration;
+        }
+
+        private boolean isExpired() {
+            return expiration > 0 && System.currentTimeMillis() >= expiration;
+        }
+
+        public Double getSpeedLimit(double latitude, double longitude) {
+            double bestDistance = SEARCH_DISTANCE;
+            Double speedLimit = null;
+            for (int i = 0; i < segments.length; i += STRIDE) {
+                double distance = DistanceCalculator.distanceToLine(
+                        latitude, longitude, segments[i], segments[i + 1], segments[i + 2], segments[i + 3]);
+                if (Double.isNaN(distance)) {
+                    // NaN means a zero-length segment or a point on the segment within rounding error
+                    if (segments[i] == segments[i + 2] && segments[i + 1] == segments[i + 3]) {
+                        distance = DistanceCalculator.distance(latitude, longitude, segments[i], segments[i + 1]);
+                    } else {
+                        distance = 0;
+                    }
+                }
+                if (distance <= bestDistance) {
+                    bestDistance = distance;
+                    speedLimit = segments[i + 4];
+                }
+            }
+            return speedLimit;
+        }
+
+    }
+
+    private final int size;
+
+    private final Map<Long, Tile> offlineTiles = new HashMap<>();
+    private final Map<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Tile> eldest) {
+            if (size() > SpeedLimitTileCache.this.size) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public SpeedLimitTileCache(Config config) {
+        size = config.getInteger(Keys.SPEED_LIMIT_CACHE_SIZE);
+        if (config.hasKey(Keys.SPEED_LIMIT_FILE)) {
+            loadExtract(Paths.get(config.getString(Keys.SPEED_LIMIT_FILE)));
+        }
+    }
+
+    private static int tileIndex(double coordinate) {
+        return (int) Math.floor(coordinate / TILE_SIZE);
+    }
+
+    private static long tileKey(int latitudeIndex, int longitudeIndex) {
+        return ((long) latitudeIndex << 32) | (longitudeIndex & 0xffffffffL);
+    }
+
+    public static long getTileKey(double latitude, double longitude) {
+        return tileKey(tileIndex(latitude), tileIndex(longitude));
+    }
+
+    private static double latitudeMargin() {
+        return SEARCH_DISTANCE / METERS_PER_DEGREE;
+    }
+
+    private static double longitudeMargin(double latitude) {
+        return latitudeMargin() / Math.max(Math.cos(Math.toRadians(Math.abs(latitude) + TILE_SIZE)), 0.01);
+    }
+
+    /**
+     * Area that has to be loaded for the tile, as south, west, north and east bounds. It includes the search distance
+     * around the tile, so roads just outside of it are found as well.
+     */
+    public static double[] getTileBounds(long key) {
+        double south = (int) (key >> 32) * TILE_SIZE;
+        double west = (int) key * TILE_SIZE;
+        double lonMargin = longitudeMargin(Math.max(Math.abs(south), Math.abs(south + TILE_SIZE)));
+        return new double[] {
+                south - latitudeMargin(), west - lonMargin,
+                south + TILE_SIZE + latitudeMargin(), west + TILE_SIZE + lonMargin};
+    }
+
+    public boolean isOffline() {
+        return !offlineTiles.isEmpty();
+    }
+
+    public Tile getTile(long key) {
+        Tile tile;
+        if (isOffline()) {
+            tile = offlineTiles.get(key);
+        } else {
+            synchronized (tiles) {
+                tile = tiles.get(key);
+                if (tile != null && tile.isExpired()) {
+                    tiles.remove(key);
+                    tile = null;
+                }
+            }
+        }
+        if (tile != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return tile;
+    }
+
+    public void putTile(long key, Tile tile) {
+        synchronized (tiles) {
+            tiles.put(key, tile);
+        }
+    }
+
+    /**
+     * Remembers a tile that could not be downloaded as empty for a short time, so positions in it don't repeat the
+     * request until the retry delay passes.
+     */
+    public void putFailedTile(long key) {
+        putTile(key, new Tile(List.of(), System.currentTimeMillis() + RETRY_DELAY_MS));
+    }
+
+    /**
+     * Parses an OSM maxspeed value, returning null for values that are not a single number, like "5;10 mph" or "none".
+     */
+    public static Double parseSpeed(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OverpassSpeedLimitProvider.parseSpeed(value);
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Skipped speed limit {}", value);
+            return null;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static XMLStreamReader createReader(InputStream inputStream) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return factory.createXMLStreamReader(inputStream);
+    }
+
+    private void loadExtract(Path file) {
+        long time = System.currentTimeMillis();
+        try {
+            Map<Long, Double> ways = new HashMap<>();
+            Map<Long, List<Long>> wayNodes = new HashMap<>();
+            Set<Long> nodeIds = new HashSet<>();
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                XMLStreamReader reader = createReader(inputStream);
+                long wayId = 0;
+                List<Long> nodes = null;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamReader.START_ELEMENT) {
+                        switch (reader.getLocalName()) {
+                            case "way":
+                                wayId = Long.parseLong(reader.getAttributeValue(null, "id"));
+                                nodes = new ArrayList<>();
+                                break;
+                            case "nd":
+                                if (nodes != null) {
+                                    nodes.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+                                }
+                                break;
+                            case "tag":
+                                if (nodes != null && "maxspeed".equals(reader.getAttributeValue(null, "k"))) {
+                                    Double speed = parseSpeed(reader.getAttributeValue(null, "v"));
+                                    if (speed != null) {
+                                        ways.put(wayId, speed);
+                                    }
+                                }
+                                break;
+                            default:
+                                break;
+                        }
+                    } else if (event == XMLStreamReader.END_ELEMENT && reader.getLocalName().equals("way")) {
+                        if (ways.containsKey(wayId)) {
+                            wayNodes.put(wayId, nodes);
+                            nodeIds.addAll(nodes);
+                        }
+                        nodes = null;
+                    }
+                }
+            }
+
+            Map<Long, double[]> coordinates = new HashMap<>();
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                XMLStreamReader reader = createReader(inputStream);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamReader.START_ELEMENT && reader.getLocalName().equals("node")) {
+                        long nodeId = Long.parseLong(reader.getAttributeValue(null, "id"));
+                        if (nodeIds.contains(nodeId)) {
+                            coordinates.put(nodeId, new double[] {
+                                    Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                                    Double.parseDouble(reader.getAttributeValue(null, "lon"))});
+                        }
+                    }
+                }
+            }
+
+            Map<Long, List<double[]>> segments = new HashMap<>();
+            wayNodes.forEach((wayId, nodes) -> {
+                double speed = ways.get(wayId);
+                for (int i = 1; i < nodes.size(); i++) {
+                    double[] start = coordinates.get(nodes.get(i - 1));
+                    double[] end = coordinates.get(nodes.get(i));
+                    if (start != null && end != null) {
+                        addSegment(segments, new double[] {start[0], start[1], end[0], end[1], speed});
+                    }
+                }
+            });
+            segments.forEach((key, tileSegments) -> offlineTiles.put(key, new Tile(tileSegments)));
+            LOGGER.info("Loaded {} roads with speed limits in {} tiles in {} ms",
+                    wayNodes.size(), offlineTiles.size(), System.currentTimeMillis() - time);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            LOGGER.warn("Speed limit extract load error", e);
+        }
+    }
+
+    /**
+     * Adds the segment to all tiles within search distance of it.
+     */
+    public static void addSegment(Map<Long, List<double[]>> segments, double[] segment) {
+        double latitudeMargin = latitudeMargin();
+        double longitudeMargin = longitudeMargin(Math.max(Math.abs(segment[0]), Math.abs(segment[2])));
+        int minLatitude = tileIndex(Math.min(segment[0], segment[2]) - latitudeMargin);
+        int maxLatitude = tileIndex(Math.max(segment[0], segment[2]) + latitudeMargin);
+        int minLongitude = tileIndex(Math.min(segment[1], segment[3]) - longitudeMargin);
+        int maxLongitude = tileIndex(Math.max(segment[1], segment[3]) + longitudeMargin);
+        for (int i = minLatitude; i <= maxLatitude; i++) {
+            for (int j = minLongitude; j <= maxLongitude; j++) {
+                segments.computeIfAbsent(tileKey(i, j), key -> new ArrayList<>()).add(segment);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+        long total = hits.get() + misses.get();
+        if (total > 0) {
+            LOGGER.info("Speed limit tile hits: {}, misses: {} ({}% hit rate), evictions: {}",
+                    hits.get(), misses.get(), hits.get() * 100 / total, evictions.get());
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.speedlimit;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.InvocationCallback;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Speed limit provider answering from roads cached per map tile. Missing tiles are downloaded from Overpass API in a
+ * single request, and positions waiting for the same tile share it.
+ */
+public class TileSpeedLimitProvider implements SpeedLimitProvider {
+
+    private final Client client;
+    private final String url;
+    private final SpeedLimitTileCache cache;
+
+    private static final class Request {
+
+        private final double latitude;
+        private final double longitude;
+        private final SpeedLimitProviderCallback callback;
+
+        private Request(double latitude, double longitude, SpeedLimitProviderCallback callback) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.callback = callback;
+        }
+
+    }
+
+    private final Map<Long, List<Request>> pending = new HashMap<>();
+
+    public TileSpeedLimitProvider(Client client, String url, SpeedLimitTileCache cache) {
+        this.client = client;
+        this.url = url + "?data=[out:json];way[maxspeed](%f,%f,%f,%f);out%%20geom;";
+        this.cache = cache;
+    }
+
+    private void answer(
+            SpeedLimitTileCache.Tile tile, double latitude, double longitude, SpeedLimitProviderCallback callback) {
+        Double speedLimit = tile != null ? tile.getSpeedLimit(latitude, longitude) : null;
+        if (speedLimit != null) {
+            callback.onSuccess(speedLimit);
+        } else {
+            callback.onFailure(new SpeedLimitException("Not found"));
+        }
+    }
+
+    private SpeedLimitTileCache.Tile parseTile(JsonObject json) {
+        List<double[]> segments = new ArrayList<>();
+        for (JsonValue value : json.getJsonArray("elements")) {
+            JsonObject element = value.asJsonObject();
+            JsonObject tags = element.getJsonObject("tags");
+            JsonArray geometry = element.getJsonArray("geometry");
+            if (tags == null || geometry == null || !tags.containsKey("maxspeed")) {
+                continue;
+            }
+            Double speed = SpeedLimitTileCache.parseSpeed(tags.getString("maxspeed"));
+            if (speed != null) {
+                for (int i = 1; i < geometry.size(); i++) {
+                    JsonObject start = geometry.getJsonObject(i - 1);
+                    JsonObject end = geometry.getJsonObject(i);
+                    segments.add(new double[] {
+                            start.getJsonNumber("lat").doubleValue(), start.getJsonNumber("lon").doubleValue(),
+                            end.getJsonNumber("lat").doubleValue(), end.getJsonNumber("lon").doubleValue(),
+                            speed});
+                }
+            }
+        }
+        return new SpeedLimitTileCache.Tile(segments);
+    }
+
+    private List<Request> takePending(long key) {
+        synchronized (pending) {
+            List<Request> requests = pending.remove(key);
+            return requests != null ? requests : List.of();
+        }
+    }
+
+    @Override
+    public void getSpeedLimit(double latitude, double longitude, SpeedLimitProviderCallback callback) {
+        long key = SpeedLimitTileCache.getTileKey(latitude, longitude);
+        SpeedLimitTileCache.Tile tile = cache.getTile(key);
+        if (tile != null || cache.isOffline()) {
+            answer(tile, latitude, longitude, callback);
+            return;
+        }
+
+        boolean download;
+        synchronized (pending) {
+            download = !pending.containsKey(key);
+            pending.computeIfAbsent(key, k -> new ArrayList<>()).add(new Request(latitude, longitude, callback));
+        }
+        if (!download) {
+            return;
+        }
+
+        double[] bounds = SpeedLimitTileCache.getTileBounds(key);
+        String formattedUrl = String.format(Locale.US, url, bounds[0], bounds[1], bounds[2], bounds[3]);
+        client.target(formattedUrl).request().async().get(new InvocationCallback<JsonObject>() {
+            @Override
+            public void completed(JsonObject json) {
+                SpeedLimitTileCache.Tile tile;
+                try {
+                    tile = parseTile(json);
+                } catch (RuntimeException e) {
+                    failed(e);
+                    return;
+                }
+                cache.putTile(key, tile);
+                for (Request request : takePending(key)) {
+                    answer(tile, request.latitude, request.longitude, request.callback);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                cache.putFailedTile(key);
+                for (Request request : takePending(key)) {
+                    request.callback.onFailure(throwable);
+                }
+            }
+        });
+    }
+
+}
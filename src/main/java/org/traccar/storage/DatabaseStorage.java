@@ -16,7 +16,10 @@
 package org.traccar.storage;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.traccar.config.Config;
+import org.traccar.config.Keys;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Device;
 import org.traccar.model.Group;
@@ -30,25 +33,122 @@ import org.traccar.storage.query.Request;
 import javax.inject.Inject;
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DatabaseStorage extends Storage {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseStorage.class);
+
+    private static final int QUERY_CACHE_LIMIT = 1000;
+
+    private interface QueryFormatter {
+        String format() throws StorageException;
+    }
+
+    /**
+     * Structural cache key of a query and its variables, collected in a single pass over the condition. The key holds
+     * the operation, class, columns, order and condition structure, so queries that only differ in values share it.
+     */
+    private static final class QueryShape {
+
+        private final List<Object> key = new ArrayList<>();
+        private final Map<String, Object> variables = new HashMap<>();
+        private boolean cacheable = true;
+
+        private QueryShape(String operation, Class<?> clazz, Request request) {
+            key.add(operation);
+            key.add(clazz);
+            key.add(request.getColumns());
+            key.add(request.getOrder());
+            addCondition(request.getCondition());
+        }
+
+        private void addCondition(Condition genericCondition) {
+            if (genericCondition instanceof Condition.Compare) {
+                var condition = (Condition.Compare) genericCondition;
+                key.add(Condition.Compare.class);
+                key.add(condition.getColumn());
+                key.add(condition.getOperator());
+                key.add(condition.getVariable());
+                if (condition.getValue() != null) {
+                    variables.put(condition.getVariable(), condition.getValue());
+                }
+            } else if (genericCondition instanceof Condition.In) {
+                // shape depends on the number of values and one-off lists would fill the cache
+                var condition = (Condition.In) genericCondition;
+                cacheable = false;
+                for (int i = 0; i < condition.getValues().size(); i++) {
+                    variables.put(condition.getColumn() + i, condition.getValues().get(i));
+                }
+            } else if (genericCondition instanceof Condition.Between) {
+                var condition = (Condition.Between) genericCondition;
+                key.add(Condition.Between.class);
+                key.add(condition.getColumn());
+                key.add(condition.getFromVariable());
+                key.add(condition.getToVariable());
+                variables.put(condition.getFromVariable(), condition.getFromValue());
+                variables.put(condition.getToVariable(), condition.getToValue());
+            } else if (genericCondition instanceof Condition.Binary) {
+                var condition = (Condition.Binary) genericCondition;
+                key.add(Condition.Binary.class);
+                key.add(condition.getOperator());
+                addCondition(condition.getFirst());
+                addCondition(condition.getSecond());
+            } else if (genericCondition instanceof Condition.Permission) {
+                var condition = (Condition.Permission) genericCondition;
+                key.add(Condition.Permission.class);
+                key.add(condition.getOwnerClass());
+                key.add(condition.getPropertyClass());
+                key.add(condition.getOwnerId() > 0);
+                key.add(condition.getIncludeGroups());
+                if (condition.getOwnerId() > 0) {
+                    variables.put(Permission.getKey(condition.getOwnerClass()), condition.getOwnerId());
+                } else {
+                    variables.put(Permission.getKey(condition.getPropertyClass()), condition.getPropertyId());
+                }
+            } else if (genericCondition instanceof Condition.LatestPositions) {
+                var condition = (Condition.LatestPositions) genericCondition;
+                key.add(Condition.LatestPositions.class);
+                key.add(condition.getDeviceId() > 0);
+                if (condition.getDeviceId() > 0) {
+                    variables.put("deviceId", condition.getDeviceId());
+                } else {
+                    addCondition(condition.getPermission());
+                }
+            } else {
+                key.add(null);
+            }
+        }
+
+    }
+
     private final Config config;
     private final DataSource dataSource;
     private final ObjectMapper objectMapper;
     private final String databaseType;
+    private final int fetchSize;
+
+    private final Map<List<Object>, QueryBuilder.ParsedQuery> queries = new ConcurrentHashMap<>();
+    private final AtomicLong queryCacheHits = new AtomicLong();
+    private final AtomicLong queryCacheMisses = new AtomicLong();
+    private final AtomicBoolean queryCacheFull = new AtomicBoolean();
 
     @Inject
     public DatabaseStorage(Config config, DataSource dataSource, ObjectMapper objectMapper) {
         this.config = config;
         this.dataSource = dataSource;
         this.objectMapper = objectMapper;
+        fetchSize = config.getInteger(Keys.DATABASE_FETCH_SIZE);
 
         try {
             databaseType = dataSource.getConnection().getMetaData().getDatabaseProductName();
@@ -57,40 +157,67 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    public long getQueryCacheHits() {
+        return queryCacheHits.get();
+    }
+
+    public long getQueryCacheMisses() {
+        return queryCacheMisses.get();
+    }
+
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("SELECT ");
-        if (request.getColumns() instanceof Columns.All) {
-            query.append('*');
-        } else {
-            query.append(formatColumns(request.getColumns().getColumns(clazz, "set"), c -> c));
+        try {
+            return prepareSelect(clazz, request).executeQuery(clazz);
+        } catch (SQLException e) {
+            throw new StorageException(e);
         }
-        query.append(" FROM ").append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
-        query.append(formatOrder(request.getOrder()));
+    }
+
+    @Override
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException {
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
-            for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
-                builder.setValue(variable.getKey(), variable.getValue());
+            QueryBuilder builder = prepareSelect(clazz, request);
+            switch (databaseType) {
+                case "MySQL":
+                    return builder.executeQueryStreamed(clazz, Integer.MIN_VALUE, false);
+                case "PostgreSQL":
+                    return builder.executeQueryStreamed(clazz, fetchSize, true);
+                default:
+                    return builder.executeQueryStreamed(clazz, fetchSize, false);
             }
-            return builder.executeQuery(clazz);
         } catch (SQLException e) {
             throw new StorageException(e);
         }
     }
 
+    private QueryBuilder prepareSelect(Class<?> clazz, Request request) throws StorageException, SQLException {
+        QueryShape shape = new QueryShape("SELECT", clazz, request);
+        QueryBuilder.ParsedQuery query = getQuery(shape, () -> {
+            StringBuilder result = new StringBuilder("SELECT ");
+            if (request.getColumns() instanceof Columns.All) {
+                result.append('*');
+            } else {
+                result.append(formatColumns(request.getColumns().getColumns(clazz, "set"), c -> c));
+            }
+            result.append(" FROM ").append(getStorageName(clazz));
+            result.append(formatCondition(request.getCondition()));
+            result.append(formatOrder(request.getOrder()));
+            return result.toString();
+        });
+        QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, false);
+        for (Map.Entry<String, Object> variable : shape.variables.entrySet()) {
+            builder.setValue(variable.getKey(), variable.getValue());
+        }
+        return builder;
+    }
+
     @Override
     public <T> long addObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("INSERT INTO ");
-        query.append(getStorageName(entity.getClass()));
-        query.append("(");
-        query.append(formatColumns(columns, c -> c));
-        query.append(") VALUES (");
-        query.append(formatColumns(columns, c -> ':' + c));
-        query.append(")");
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString(), true);
+            QueryBuilder builder = QueryBuilder.create(
+                    config, dataSource, objectMapper, getInsertQuery(entity.getClass(), columns), true);
             builder.setObject(entity, columns);
             return builder.executeUpdate();
         } catch (SQLException e) {
@@ -98,18 +225,38 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T> long[] addObjects(List<T> entities, Request request) throws StorageException {
+        if (entities.isEmpty()) {
+            return new long[0];
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> columns = request.getColumns().getColumns(clazz, "get");
+        try {
+            QueryBuilder builder = QueryBuilder.create(
+                    config, dataSource, objectMapper, getInsertQuery(clazz, columns), true);
+            return builder.executeBatch(entities, columns, !databaseType.equals("Microsoft SQL Server"));
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     @Override
     public <T> void updateObject(T entity, Request request) throws StorageException {
         List<String> columns = request.getColumns().getColumns(entity.getClass(), "get");
-        StringBuilder query = new StringBuilder("UPDATE ");
-        query.append(getStorageName(entity.getClass()));
-        query.append(" SET ");
-        query.append(formatColumns(columns, c -> c + " = :" + c));
-        query.append(formatCondition(request.getCondition()));
+        QueryShape shape = new QueryShape("UPDATE", entity.getClass(), request);
+        QueryBuilder.ParsedQuery query = getQuery(shape, () -> {
+            StringBuilder result = new StringBuilder("UPDATE ");
+            result.append(getStorageName(entity.getClass()));
+            result.append(" SET ");
+            result.append(formatColumns(columns, c -> c + " = :" + c));
+            result.append(formatCondition(request.getCondition()));
+            return result.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, false);
             builder.setObject(entity, columns);
-            for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
+            for (Map.Entry<String, Object> variable : shape.variables.entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
             builder.executeUpdate();
@@ -118,14 +265,43 @@ public class DatabaseStorage extends Storage {
         }
     }
 
+    @Override
+    public <T extends BaseModel> void updateObjects(List<T> entities, Columns columns) throws StorageException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Class<?> clazz = entities.get(0).getClass();
+        List<String> updateColumns = columns.getColumns(clazz, "get");
+        QueryBuilder.ParsedQuery query = getQuery(List.of("UPDATE BATCH", clazz, updateColumns), () -> {
+            StringBuilder result = new StringBuilder("UPDATE ");
+            result.append(getStorageName(clazz));
+            result.append(" SET ");
+            result.append(formatColumns(updateColumns, c -> c + " = :" + c));
+            result.append(" WHERE id = :id");
+            return result.toString();
+        });
+        List<String> bindColumns = new ArrayList<>(updateColumns);
+        bindColumns.add("id");
+        try {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, false);
+            builder.executeBatch(entities, bindColumns, true);
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
     @Override
     public void removeObject(Class<?> clazz, Request request) throws StorageException {
-        StringBuilder query = new StringBuilder("DELETE FROM ");
-        query.append(getStorageName(clazz));
-        query.append(formatCondition(request.getCondition()));
+        QueryShape shape = new QueryShape("DELETE", clazz, request);
+        QueryBuilder.ParsedQuery query = getQuery(shape, () -> {
+            StringBuilder result = new StringBuilder("DELETE FROM ");
+            result.append(getStorageName(clazz));
+            result.append(formatCondition(request.getCondition()));
+            return result.toString();
+        });
         try {
-            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
-            for (Map.Entry<String, Object> variable : getConditionVariables(request.getCondition()).entrySet()) {
+            QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query, false);
+            for (Map.Entry<String, Object> variable : shape.variables.entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
             builder.executeUpdate();
@@ -149,9 +325,10 @@ public class DatabaseStorage extends Storage {
         }
         Condition combinedCondition = Condition.merge(conditions);
         query.append(formatCondition(combinedCondition));
+        QueryShape shape = new QueryShape("PERMISSIONS", Permission.class, new Request(combinedCondition));
         try {
             QueryBuilder builder = QueryBuilder.create(config, dataSource, objectMapper, query.toString());
-            for (Map.Entry<String, Object> variable : getConditionVariables(combinedCondition).entrySet()) {
+            for (Map.Entry<String, Object> variable : shape.variables.entrySet()) {
                 builder.setValue(variable.getKey(), variable.getValue());
             }
             return builder.executePermissionsQuery();
@@ -204,35 +381,47 @@ public class DatabaseStorage extends Storage {
         return storageName.value();
     }
 
-    private Map<String, Object> getConditionVariables(Condition genericCondition) {
-        Map<String, Object> results = new HashMap<>();
-        if (genericCondition instanceof Condition.Compare) {
-            var condition = (Condition.Compare) genericCondition;
-            if (condition.getValue() != null) {
-                results.put(condition.getVariable(), condition.getValue());
-            }
-        } else if (genericCondition instanceof Condition.Between) {
-            var condition = (Condition.Between) genericCondition;
-            results.put(condition.getFromVariable(), condition.getFromValue());
-            results.put(condition.getToVariable(), condition.getToValue());
-        } else if (genericCondition instanceof Condition.Binary) {
-            var condition = (Condition.Binary) genericCondition;
-            results.putAll(getConditionVariables(condition.getFirst()));
-            results.putAll(getConditionVariables(condition.getSecond()));
-        } else if (genericCondition instanceof Condition.Permission) {
-            var condition = (Condition.Permission) genericCondition;
-            if (condition.getOwnerId() > 0) {
-                results.put(Permission.getKey(condition.getOwnerClass()), condition.getOwnerId());
-            } else {
-                results.put(Permission.getKey(condition.getPropertyClass()), condition.getPropertyId());
+    private QueryBuilder.ParsedQuery getQuery(QueryShape shape, QueryFormatter formatter) throws StorageException {
+        if (!shape.cacheable) {
+            queryCacheMisses.incrementAndGet();
+            return QueryBuilder.parse(formatter.format());
+        }
+        return getQuery(shape.key, formatter);
+    }
+
+    private QueryBuilder.ParsedQuery getQuery(List<Object> key, QueryFormatter formatter) throws StorageException {
+        QueryBuilder.ParsedQuery query = queries.get(key);
+        if (query != null) {
+            queryCacheHits.incrementAndGet();
+            return query;
+        }
+        queryCacheMisses.incrementAndGet();
+        query = QueryBuilder.parse(formatter.format());
+        if (queries.size() >= QUERY_CACHE_LIMIT) {
+            if (queryCacheFull.compareAndSet(false, true)) {
+                LOGGER.warn("Query cache limit of {} shapes reached, evicting entries", QUERY_CACHE_LIMIT);
             }
-        } else if (genericCondition instanceof Condition.LatestPositions) {
-            var condition = (Condition.LatestPositions) genericCondition;
-            if (condition.getDeviceId() > 0) {
-                results.put("deviceId", condition.getDeviceId());
+            var iterator = queries.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
             }
         }
-        return results;
+        queries.put(key, query);
+        return query;
+    }
+
+    private QueryBuilder.ParsedQuery getInsertQuery(Class<?> clazz, List<String> columns) throws StorageException {
+        return getQuery(List.of("INSERT", clazz, columns), () -> {
+            StringBuilder result = new StringBuilder("INSERT INTO ");
+            result.append(getStorageName(clazz));
+            result.append("(");
+            result.append(formatColumns(columns, c -> c));
+            result.append(") VALUES (");
+            result.append(formatColumns(columns, c -> ':' + c));
+            result.append(")");
+            return result.toString();
+        });
     }
 
     private String formatColumns(List<String> columns, Function<String, String> mapper) {
@@ -258,6 +447,21 @@ public class DatabaseStorage extends Storage {
                 result.append(" :");
                 result.append(condition.getVariable());
 
+            } else if (genericCondition instanceof Condition.In) {
+
+                var condition = (Condition.In) genericCondition;
+                result.append(condition.getColumn());
+                result.append(" IN (");
+                for (int i = 0; i < condition.getValues().size(); i++) {
+                    if (i > 0) {
+                        result.append(", ");
+                    }
+                    result.append(":");
+                    result.append(condition.getColumn());
+                    result.append(i);
+                }
+                result.append(")");
+
             } else if (genericCondition instanceof Condition.Between) {
 
                 var condition = (Condition.Between) genericCondition;
@@ -291,6 +495,8 @@ public class DatabaseStorage extends Storage {
                 result.append(getStorageName(Device.class));
                 if (condition.getDeviceId() > 0) {
                     result.append(" WHERE id = :deviceId");
+                } else if (condition.getPermission() != null) {
+                    result.append(formatCondition(condition.getPermission()));
                 }
                 result.append(")");
 
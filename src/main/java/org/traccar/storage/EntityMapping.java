@@ -0,0 +1,265 @@
+/*
+ * Copyright 2023 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Accessors of an entity class, resolved once and compiled into lambdas, so reading rows and binding parameters
+ * doesn't go through reflection for every value. Row readers are additionally cached per set of result columns.
+ */
+public final class EntityMapping {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityMapping.class);
+
+    private static final Map<Class<?>, EntityMapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    public interface ResultSetProcessor {
+        void process(Object object, ResultSet resultSet, ObjectMapper objectMapper) throws SQLException;
+    }
+
+    public static final class Property<F> {
+
+        private final Class<?> type;
+        private final F accessor;
+
+        private Property(Class<?> type, F accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public F getAccessor() {
+            return accessor;
+        }
+
+    }
+
+    private final Class<?> clazz;
+    private final Supplier<Object> constructor;
+    private final Map<String, Property<Function<Object, Object>>> getters = new HashMap<>();
+    private final Map<String, Property<BiConsumer<Object, Object>>> setters = new HashMap<>();
+    private final Map<String, List<ResultSetProcessor>> readers = new ConcurrentHashMap<>();
+
+    private EntityMapping(Class<?> clazz) {
+        this.clazz = clazz;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        constructor = createConstructor(lookup, clazz);
+        Map<String, Class<?>> types = new HashMap<>();
+        Map<String, List<Method>> setterMethods = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            String name = method.getName();
+            if (method.isBridge()) {
+                continue;
+            }
+            if (name.startsWith("get") && name.length() > 3
+                    && method.getParameterCount() == 0 && !method.getReturnType().equals(void.class)) {
+                getters.put(name.substring(3), new Property<>(
+                        method.getReturnType(), createGetter(lookup, clazz, method)));
+                types.put(name.substring(3).toLowerCase(Locale.ROOT), method.getReturnType());
+            } else if (name.startsWith("set") && method.getParameterCount() == 1) {
+                setterMethods.computeIfAbsent(
+                        name.substring(3).toLowerCase(Locale.ROOT), key -> new ArrayList<>()).add(method);
+            }
+        }
+        setterMethods.forEach((key, overloads) -> {
+            Method method = selectSetter(overloads, types.get(key));
+            setters.put(key, new Property<>(method.getParameterTypes()[0], createSetter(lookup, clazz, method)));
+        });
+    }
+
+    private static Method selectSetter(List<Method> overloads, Class<?> type) {
+        for (Method method : overloads) {
+            if (method.getParameterTypes()[0].equals(type)) {
+                return method;
+            }
+        }
+        return overloads.stream()
+                .min(Comparator.comparing(method -> method.getParameterTypes()[0].getName()))
+                .orElseThrow();
+    }
+
+    public static EntityMapping of(Class<?> clazz) {
+        return MAPPINGS.computeIfAbsent(clazz, EntityMapping::new);
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> createConstructor(MethodHandles.Lookup lookup, Class<?> clazz) {
+        try {
+            MethodHandle handle = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), handle, MethodType.methodType(clazz));
+            return (Supplier<Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return () -> {
+                try {
+                    return clazz.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException error) {
+                    throw new IllegalArgumentException(error);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createGetter(MethodHandles.Lookup lookup, Class<?> clazz, Method method) {
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), lookup.unreflect(method),
+                    MethodType.methodType(box(method.getReturnType()), clazz));
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return object -> {
+                try {
+                    return method.invoke(object);
+                } catch (ReflectiveOperationException error) {
+                    throw new IllegalArgumentException(error);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> createSetter(
+            MethodHandles.Lookup lookup, Class<?> clazz, Method method) {
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), lookup.unreflect(method),
+                    MethodType.methodType(void.class, clazz, box(method.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return (object, value) -> {
+                try {
+                    method.invoke(object, value);
+                } catch (ReflectiveOperationException error) {
+                    throw new IllegalArgumentException(error);
+                }
+            };
+        }
+    }
+
+    public Object newInstance() {
+        return constructor.get();
+    }
+
+    public Property<Function<Object, Object>> getGetter(String column) {
+        return getters.get(Character.toUpperCase(column.charAt(0)) + column.substring(1));
+    }
+
+    public Map<String, Property<Function<Object, Object>>> getGetters() {
+        return Collections.unmodifiableMap(getters);
+    }
+
+    public List<ResultSetProcessor> getReaders(ResultSetMetaData metaData) throws SQLException {
+        List<String> labels = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            labels.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+        return readers.computeIfAbsent(String.join(",", labels), key -> createReaders(labels));
+    }
+
+    private List<ResultSetProcessor> createReaders(List<String> labels) {
+        List<ResultSetProcessor> processors = new ArrayList<>();
+        for (var entry : setters.entrySet()) {
+            int index = labels.indexOf(entry.getKey());
+            if (index >= 0) {
+                processors.add(createReader(entry.getValue().getType(), entry.getValue().getAccessor(), index + 1));
+            }
+        }
+        LOGGER.debug("Row mapping for {} created with {} columns", clazz.getSimpleName(), processors.size());
+        return processors;
+    }
+
+    private static void set(BiConsumer<Object, Object> setter, Object object, Object value) {
+        try {
+            setter.accept(object, value);
+        } catch (RuntimeException error) {
+            LOGGER.warn("Set property error", error);
+        }
+    }
+
+    private static ResultSetProcessor createReader(
+            Class<?> type, BiConsumer<Object, Object> setter, int index) {
+        if (type.equals(boolean.class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getBoolean(index));
+        } else if (type.equals(int.class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getInt(index));
+        } else if (type.equals(long.class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getLong(index));
+        } else if (type.equals(double.class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getDouble(index));
+        } else if (type.equals(String.class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getString(index));
+        } else if (type.equals(Date.class)) {
+            return (object, resultSet, objectMapper) -> {
+                Timestamp timestamp = resultSet.getTimestamp(index);
+                if (timestamp != null) {
+                    set(setter, object, new Date(timestamp.getTime()));
+                }
+            };
+        } else if (type.equals(byte[].class)) {
+            return (object, resultSet, objectMapper) -> set(setter, object, resultSet.getBytes(index));
+        } else {
+            return (object, resultSet, objectMapper) -> {
+                String value = resultSet.getString(index);
+                if (value != null && !value.isEmpty()) {
+                    try {
+                        set(setter, object, objectMapper.readValue(value, type));
+                    } catch (IOException error) {
+                        LOGGER.warn("Set property error", error);
+                    }
+                }
+            };
+        }
+    }
+
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MemoryStorage extends Storage {
 
@@ -49,10 +50,14 @@ public class MemoryStorage extends Storage {
 
     @Override
     public <T> List<T> getObjects(Class<T> clazz, Request request) {
+        return getObjectsStream(clazz, request).collect(Collectors.toList());
+    }
+
+    @Override
+    public <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) {
         return objects.computeIfAbsent(clazz, key -> new HashMap<>()).values().stream()
                 .filter(object -> checkCondition(request.getCondition(), object))
-                .map(object -> (T) object)
-                .collect(Collectors.toList());
+                .map(object -> (T) object);
     }
 
     private boolean checkCondition(Condition genericCondition, Object object) {
@@ -80,6 +85,11 @@ public class MemoryStorage extends Storage {
                     throw new RuntimeException("Unsupported comparison condition");
             }
 
+        } else if (genericCondition instanceof Condition.In) {
+
+            var condition = (Condition.In) genericCondition;
+            return condition.getValues().contains(retrieveValue(object, condition.getColumn()));
+
         } else if (genericCondition instanceof Condition.Between) {
 
             var condition = (Condition.Between) genericCondition;
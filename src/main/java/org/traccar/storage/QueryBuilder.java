@@ -24,9 +24,6 @@ import org.traccar.config.Keys;
 import org.traccar.model.Permission;
 
 import javax.sql.DataSource;
-import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -37,10 +34,16 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("UnusedReturnValue")
 public final class QueryBuilder {
@@ -50,27 +53,54 @@ public final class QueryBuilder {
     private final Config config;
     private final ObjectMapper objectMapper;
 
-    private final Map<String, List<Integer>> indexMap = new HashMap<>();
+    private final Map<String, List<Integer>> indexMap;
     private Connection connection;
     private PreparedStatement statement;
     private final String query;
     private final boolean returnGeneratedKeys;
 
+    /**
+     * Query with named parameters replaced by positional ones. Instances are immutable and can be reused for any
+     * number of statements.
+     */
+    public static final class ParsedQuery {
+
+        private final String query;
+        private final String parsedQuery;
+        private final Map<String, List<Integer>> indexMap;
+
+        private ParsedQuery(String query) {
+            this.query = query;
+            Map<String, List<Integer>> indexMap = new HashMap<>();
+            parsedQuery = parse(query.trim(), indexMap);
+            this.indexMap = indexMap;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+    }
+
+    public static ParsedQuery parse(String query) {
+        return new ParsedQuery(query);
+    }
+
     private QueryBuilder(
             Config config, DataSource dataSource, ObjectMapper objectMapper,
-            String query, boolean returnGeneratedKeys) throws SQLException {
+            ParsedQuery query, boolean returnGeneratedKeys) throws SQLException {
         this.config = config;
         this.objectMapper = objectMapper;
-        this.query = query;
+        this.query = query != null ? query.query : null;
+        this.indexMap = query != null ? query.indexMap : new HashMap<>();
         this.returnGeneratedKeys = returnGeneratedKeys;
         if (query != null) {
             connection = dataSource.getConnection();
-            String parsedQuery = parse(query.trim(), indexMap);
             try {
                 if (returnGeneratedKeys) {
-                    statement = connection.prepareStatement(parsedQuery, Statement.RETURN_GENERATED_KEYS);
+                    statement = connection.prepareStatement(query.parsedQuery, Statement.RETURN_GENERATED_KEYS);
                 } else {
-                    statement = connection.prepareStatement(parsedQuery);
+                    statement = connection.prepareStatement(query.parsedQuery);
                 }
             } catch (SQLException error) {
                 connection.close();
@@ -137,12 +167,19 @@ public final class QueryBuilder {
 
     public static QueryBuilder create(
             Config config, DataSource dataSource, ObjectMapper objectMapper, String query) throws SQLException {
-        return new QueryBuilder(config, dataSource, objectMapper, query, false);
+        return create(config, dataSource, objectMapper, query, false);
     }
 
     public static QueryBuilder create(
             Config config, DataSource dataSource, ObjectMapper objectMapper, String query,
             boolean returnGeneratedKeys) throws SQLException {
+        return new QueryBuilder(
+                config, dataSource, objectMapper, query != null ? parse(query) : null, returnGeneratedKeys);
+    }
+
+    public static QueryBuilder create(
+            Config config, DataSource dataSource, ObjectMapper objectMapper, ParsedQuery query,
+            boolean returnGeneratedKeys) throws SQLException {
         return new QueryBuilder(config, dataSource, objectMapper, query, returnGeneratedKeys);
     }
 
@@ -285,116 +322,40 @@ public final class QueryBuilder {
 
     public QueryBuilder setObject(Object object, List<String> columns) throws SQLException {
 
+        EntityMapping mapping = EntityMapping.of(object.getClass());
         try {
             for (String column : columns) {
-                Method method = object.getClass().getMethod(
-                        "get" + Character.toUpperCase(column.charAt(0)) + column.substring(1));
-                if (method.getReturnType().equals(boolean.class)) {
-                    setBoolean(column, (Boolean) method.invoke(object));
-                } else if (method.getReturnType().equals(int.class)) {
-                    setInteger(column, (Integer) method.invoke(object));
-                } else if (method.getReturnType().equals(long.class)) {
-                    setLong(column, (Long) method.invoke(object), column.endsWith("Id"));
-                } else if (method.getReturnType().equals(double.class)) {
-                    setDouble(column, (Double) method.invoke(object));
-                } else if (method.getReturnType().equals(String.class)) {
-                    setString(column, (String) method.invoke(object));
-                } else if (method.getReturnType().equals(Date.class)) {
-                    setDate(column, (Date) method.invoke(object));
-                } else if (method.getReturnType().equals(byte[].class)) {
-                    setBlob(column, (byte[]) method.invoke(object));
+                var property = mapping.getGetter(column);
+                if (property == null) {
+                    throw new NoSuchMethodException(object.getClass().getName() + " has no property " + column);
+                }
+                Class<?> type = property.getType();
+                Object value = property.getAccessor().apply(object);
+                if (type.equals(boolean.class)) {
+                    setBoolean(column, (Boolean) value);
+                } else if (type.equals(int.class)) {
+                    setInteger(column, (Integer) value);
+                } else if (type.equals(long.class)) {
+                    setLong(column, (Long) value, column.endsWith("Id"));
+                } else if (type.equals(double.class)) {
+                    setDouble(column, (Double) value);
+                } else if (type.equals(String.class)) {
+                    setString(column, (String) value);
+                } else if (type.equals(Date.class)) {
+                    setDate(column, (Date) value);
+                } else if (type.equals(byte[].class)) {
+                    setBlob(column, (byte[]) value);
                 } else {
-                    setString(column, objectMapper.writeValueAsString(method.invoke(object)));
+                    setString(column, objectMapper.writeValueAsString(value));
                 }
             }
-        } catch (ReflectiveOperationException | JsonProcessingException e) {
+        } catch (ReflectiveOperationException | JsonProcessingException | IllegalArgumentException e) {
             LOGGER.warn("Set object error", e);
         }
 
         return this;
     }
 
-    private interface ResultSetProcessor<T> {
-        void process(T object, ResultSet resultSet) throws SQLException;
-    }
-
-    private <T> void addProcessors(
-            List<ResultSetProcessor<T>> processors,
-            final Class<?> parameterType, final Method method, final String name) {
-
-        if (parameterType.equals(boolean.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getBoolean(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(int.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getInt(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(long.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getLong(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(double.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getDouble(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(String.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getString(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(Date.class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    Timestamp timestamp = resultSet.getTimestamp(name);
-                    if (timestamp != null) {
-                        method.invoke(object, new Date(timestamp.getTime()));
-                    }
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else if (parameterType.equals(byte[].class)) {
-            processors.add((object, resultSet) -> {
-                try {
-                    method.invoke(object, resultSet.getBytes(name));
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    LOGGER.warn("Set property error", error);
-                }
-            });
-        } else {
-            processors.add((object, resultSet) -> {
-                String value = resultSet.getString(name);
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        method.invoke(object, objectMapper.readValue(value, parameterType));
-                    } catch (InvocationTargetException | IllegalAccessException | IOException error) {
-                        LOGGER.warn("Set property error", error);
-                    }
-                }
-            });
-        }
-    }
-
     private void logQuery() {
         if (config.getBoolean(Keys.LOGGER_QUERIES)) {
             LOGGER.info(query);
@@ -411,54 +372,117 @@ public final class QueryBuilder {
                 logQuery();
 
                 try (ResultSet resultSet = statement.executeQuery()) {
+                    EntityMapping mapping = EntityMapping.of(clazz);
+                    List<EntityMapping.ResultSetProcessor> processors = mapping.getReaders(resultSet.getMetaData());
+                    while (resultSet.next()) {
+                        result.add(readObject(clazz, mapping, processors, resultSet));
+                    }
+                }
 
-                    ResultSetMetaData resultMetaData = resultSet.getMetaData();
+            } finally {
+                statement.close();
+                connection.close();
+            }
+        }
 
-                    List<ResultSetProcessor<T>> processors = new LinkedList<>();
+        return result;
+    }
 
-                    Method[] methods = clazz.getMethods();
+    private <T> T readObject(
+            Class<T> clazz, EntityMapping mapping, List<EntityMapping.ResultSetProcessor> processors,
+            ResultSet resultSet) throws SQLException {
+        T object = clazz.cast(mapping.newInstance());
+        for (EntityMapping.ResultSetProcessor processor : processors) {
+            try {
+                processor.process(object, resultSet, objectMapper);
+            } catch (IllegalArgumentException | ClassCastException error) {
+                LOGGER.warn("Set property error", error);
+            }
+        }
+        return object;
+    }
 
-                    for (final Method method : methods) {
-                        if (method.getName().startsWith("set") && method.getParameterTypes().length == 1) {
+    /**
+     * Executes the query and returns rows lazily. Connection is held until the returned stream is closed, so it must
+     * always be used with try-with-resources.
+     *
+     * @param fetchSize number of rows fetched from the database at once
+     * @param useCursor run the query in a transaction, which some drivers require for a server-side cursor
+     */
+    public <T> Stream<T> executeQueryStreamed(Class<T> clazz, int fetchSize, boolean useCursor) throws SQLException {
+
+        if (query == null) {
+            return Stream.empty();
+        }
 
-                            final String name = method.getName().substring(3);
+        EntityMapping mapping = EntityMapping.of(clazz);
+        ResultSet resultSet = null;
+        List<EntityMapping.ResultSetProcessor> processors;
+        try {
+            logQuery();
+            if (useCursor) {
+                connection.setAutoCommit(false);
+            }
+            statement.setFetchSize(fetchSize);
+            resultSet = statement.executeQuery();
+            processors = mapping.getReaders(resultSet.getMetaData());
+        } catch (SQLException error) {
+            closeStreamed(resultSet, useCursor);
+            throw error;
+        }
 
-                            // Check if column exists
-                            boolean column = false;
-                            for (int i = 1; i <= resultMetaData.getColumnCount(); i++) {
-                                if (name.equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
-                                    column = true;
-                                    break;
-                                }
-                            }
-                            if (!column) {
-                                continue;
-                            }
+        ResultSet rows = resultSet;
+        Iterator<T> iterator = new Iterator<>() {
+            private T next;
 
-                            addProcessors(processors, method.getParameterTypes()[0], method, name);
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        if (rows.next()) {
+                            next = readObject(clazz, mapping, processors, rows);
                         }
+                    } catch (SQLException error) {
+                        throw new IllegalStateException(error);
                     }
+                }
+                return next != null;
+            }
 
-                    while (resultSet.next()) {
-                        try {
-                            T object = clazz.getDeclaredConstructor().newInstance();
-                            for (ResultSetProcessor<T> processor : processors) {
-                                processor.process(object, resultSet);
-                            }
-                            result.add(object);
-                        } catch (ReflectiveOperationException e) {
-                            throw new IllegalArgumentException();
-                        }
-                    }
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
+                T result = next;
+                next = null;
+                return result;
+            }
+        };
 
-            } finally {
-                statement.close();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> closeStreamed(rows, useCursor));
+    }
+
+    private void closeStreamed(ResultSet resultSet, boolean useCursor) {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            if (useCursor && !connection.isClosed()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            statement.close();
+        } catch (SQLException error) {
+            LOGGER.warn("Close query error", error);
+        } finally {
+            try {
                 connection.close();
+            } catch (SQLException error) {
+                LOGGER.warn("Close connection error", error);
             }
         }
-
-        return result;
     }
 
     public long executeUpdate() throws SQLException {
@@ -481,6 +505,60 @@ public final class QueryBuilder {
         return 0;
     }
 
+    public <T> long[] executeBatch(List<T> objects, List<String> columns, boolean batchKeys) throws SQLException {
+        long[] result = new long[objects.size()];
+        if (query != null) {
+            try {
+                logQuery();
+                connection.setAutoCommit(false);
+                int index = 0;
+                for (T object : objects) {
+                    setObject(object, columns);
+                    if (batchKeys) {
+                        statement.addBatch();
+                    } else {
+                        statement.execute();
+                        result[index++] = readGeneratedKey();
+                    }
+                }
+                if (batchKeys) {
+                    statement.executeBatch();
+                    if (returnGeneratedKeys) {
+                        try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                            while (index < result.length && resultSet.next()) {
+                                result[index++] = resultSet.getLong(1);
+                            }
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException error) {
+                if (!connection.isClosed()) {
+                    connection.rollback();
+                }
+                throw error;
+            } finally {
+                if (!connection.isClosed()) {
+                    connection.setAutoCommit(true);
+                }
+                statement.close();
+                connection.close();
+            }
+        }
+        return result;
+    }
+
+    private long readGeneratedKey() throws SQLException {
+        if (returnGeneratedKeys) {
+            try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                if (resultSet.next()) {
+                    return resultSet.getLong(1);
+                }
+            }
+        }
+        return 0;
+    }
+
     public List<Permission> executePermissionsQuery() throws SQLException {
         List<Permission> result = new LinkedList<>();
         if (query != null) {
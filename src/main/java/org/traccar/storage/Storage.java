@@ -17,18 +17,42 @@ package org.traccar.storage;
 
 import org.traccar.model.BaseModel;
 import org.traccar.model.Permission;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
 import org.traccar.storage.query.Request;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public abstract class Storage {
 
     public abstract <T> List<T> getObjects(Class<T> clazz, Request request) throws StorageException;
 
+    /**
+     * Same as {@link #getObjects}, but objects are loaded while the stream is consumed instead of all at once. The
+     * stream holds storage resources and must be closed.
+     */
+    public abstract <T> Stream<T> getObjectsStream(Class<T> clazz, Request request) throws StorageException;
+
     public abstract <T> long addObject(T entity, Request request) throws StorageException;
 
+    public <T> long[] addObjects(List<T> entities, Request request) throws StorageException {
+        long[] result = new long[entities.size()];
+        int index = 0;
+        for (T entity : entities) {
+            result[index++] = addObject(entity, request);
+        }
+        return result;
+    }
+
     public abstract <T> void updateObject(T entity, Request request) throws StorageException;
 
+    public <T extends BaseModel> void updateObjects(List<T> entities, Columns columns) throws StorageException {
+        for (T entity : entities) {
+            updateObject(entity, new Request(columns, new Condition.Equals("id", entity.getId())));
+        }
+    }
+
     public abstract void removeObject(Class<?> clazz, Request request) throws StorageException;
 
     public abstract List<Permission> getPermissions(
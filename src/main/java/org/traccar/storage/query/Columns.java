@@ -20,16 +20,26 @@ import org.traccar.storage.QueryIgnore;
 import java.beans.Introspector;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public abstract class Columns {
 
+    private static final Map<String, List<String>> ALL_COLUMNS = new ConcurrentHashMap<>();
+
     public abstract List<String> getColumns(Class<?> clazz, String type);
 
     protected List<String> getAllColumns(Class<?> clazz, String type) {
+        return ALL_COLUMNS.computeIfAbsent(type + ' ' + clazz.getName(), key -> findColumns(clazz, type));
+    }
+
+    private static List<String> findColumns(Class<?> clazz, String type) {
         List<String> columns = new LinkedList<>();
         Method[] methods = clazz.getMethods();
         for (Method method : methods) {
@@ -40,7 +50,7 @@ public abstract class Columns {
                 columns.add(Introspector.decapitalize(method.getName().substring(3)));
             }
         }
-        return columns;
+        return Collections.unmodifiableList(columns);
     }
 
     public static class All extends Columns {
@@ -48,6 +58,16 @@ public abstract class Columns {
         public List<String> getColumns(Class<?> clazz, String type) {
             return getAllColumns(clazz, type);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
     }
 
     public static class Include extends Columns {
@@ -61,6 +81,16 @@ public abstract class Columns {
         public List<String> getColumns(Class<?> clazz, String type) {
             return columns;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass() && columns.equals(((Include) o).columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), columns);
+        }
     }
 
     public static class Exclude extends Columns {
@@ -76,6 +106,16 @@ public abstract class Columns {
                     .filter(column -> !columns.contains(column))
                     .collect(Collectors.toList());
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass() && columns.equals(((Exclude) o).columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), columns);
+        }
     }
 
 }
@@ -17,6 +17,7 @@ package org.traccar.storage.query;
 
 import org.traccar.model.GroupedModel;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface Condition {
@@ -69,6 +70,24 @@ public interface Condition {
         }
     }
 
+    class In implements Condition {
+        private final String column;
+        private final List<?> values;
+
+        public In(String column, Collection<?> values) {
+            this.column = column;
+            this.values = List.copyOf(values);
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public List<?> getValues() {
+            return values;
+        }
+    }
+
     class Between implements Condition {
         private final String column;
         private final String fromVariable;
@@ -194,9 +213,16 @@ public interface Condition {
 
     class LatestPositions implements Condition {
         private final long deviceId;
+        private final Permission permission;
 
         public LatestPositions(long deviceId) {
             this.deviceId = deviceId;
+            this.permission = null;
+        }
+
+        public LatestPositions(Permission permission) {
+            this.deviceId = 0;
+            this.permission = permission;
         }
 
         public LatestPositions() {
@@ -206,6 +232,10 @@ public interface Condition {
         public long getDeviceId() {
             return deviceId;
         }
+
+        public Permission getPermission() {
+            return permission;
+        }
     }
 
 }
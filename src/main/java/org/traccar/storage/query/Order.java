@@ -15,6 +15,8 @@
  */
 package org.traccar.storage.query;
 
+import java.util.Objects;
+
 public class Order {
 
     private final String column;
@@ -43,4 +45,21 @@ public class Order {
         return limit;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Order order = (Order) o;
+        return descending == order.descending && limit == order.limit && Objects.equals(column, order.column);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(column, descending, limit);
+    }
+
 }
@@ -0,0 +1,145 @@
+package org.traccar;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProcessingExecutorTest {
+
+    private static ProcessingExecutor createExecutor(int threads) {
+        Config config = new Config();
+        config.setString(Keys.PROCESSING_THREADS, String.valueOf(threads));
+        return new ProcessingExecutor(config);
+    }
+
+    @Test
+    public void testDeviceOrderWithAsyncCompletion() throws Exception {
+        ProcessingExecutor executor = createExecutor(4);
+        ScheduledExecutorService callbacks = Executors.newScheduledThreadPool(2);
+
+        int count = 100;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            int value = i;
+            executor.execute(1, completion -> {
+                if (active.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(value);
+                callbacks.schedule(() -> {
+                    active.decrementAndGet();
+                    completion.run();
+                    latch.countDown();
+                }, value % 3, TimeUnit.MILLISECONDS);
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, order.get(i));
+        }
+
+        callbacks.shutdown();
+        executor.stop();
+    }
+
+    @Test
+    public void testDevicesInParallel() throws Exception {
+        ProcessingExecutor executor = createExecutor(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch finished = new CountDownLatch(2);
+
+        for (long deviceId = 1; deviceId <= 2; deviceId++) {
+            executor.execute(deviceId, completion -> {
+                started.countDown();
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                completion.run();
+                finished.countDown();
+            });
+        }
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(0, started.getCount());
+        executor.stop();
+    }
+
+    @Test
+    public void testFailedTaskReleasesQueue() throws Exception {
+        ProcessingExecutor executor = createExecutor(1);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        executor.execute(1, completion -> {
+            throw new IllegalStateException("Task error");
+        });
+        executor.execute(1, completion -> {
+            completion.run();
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        executor.stop();
+    }
+
+    @Test
+    public void testRepeatedCompletionIgnored() throws Exception {
+        ProcessingExecutor executor = createExecutor(2);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        executor.execute(1, completion -> {
+            try {
+                queued.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completion.run();
+            completion.run();
+            latch.countDown();
+        });
+        for (int i = 0; i < 2; i++) {
+            executor.execute(1, completion -> {
+                if (active.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                try {
+                    blocked.await(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                active.decrementAndGet();
+                completion.run();
+                latch.countDown();
+            });
+        }
+        queued.countDown();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        executor.stop();
+    }
+
+}
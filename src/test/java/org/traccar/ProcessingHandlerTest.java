@@ -0,0 +1,171 @@
+package org.traccar;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.handler.AcknowledgementHandler;
+import org.traccar.model.Position;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProcessingHandlerTest {
+
+    /**
+     * Holds messages like a handler waiting for an asynchronous response, the test thread acts as the callback.
+     */
+    private static class DeferredHandler extends ChannelInboundHandlerAdapter {
+
+        private final BlockingQueue<Position> positions = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            positions.add((Position) msg);
+            callbacks.add(() -> ctx.fireChannelRead(msg));
+        }
+
+        public Position next() throws InterruptedException {
+            Position position = positions.poll(5, TimeUnit.SECONDS);
+            assertNotNull(position);
+            return position;
+        }
+
+        public void resume() throws InterruptedException {
+            Runnable callback = callbacks.poll(5, TimeUnit.SECONDS);
+            assertNotNull(callback);
+            callback.run();
+        }
+
+    }
+
+    private static class DroppingHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(new AcknowledgementHandler.EventHandled(msg));
+        }
+
+    }
+
+    private static class FailingHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            throw new IllegalStateException("Dropped message forwarded");
+        }
+
+    }
+
+    private final AtomicBoolean autoRead = new AtomicBoolean(true);
+
+    private ChannelHandlerContext mockContext() {
+        ChannelConfig channelConfig = mock(ChannelConfig.class);
+        when(channelConfig.isAutoRead()).thenAnswer(invocation -> autoRead.get());
+        when(channelConfig.setAutoRead(anyBoolean())).thenAnswer(invocation -> {
+            autoRead.set(invocation.getArgument(0));
+            return channelConfig;
+        });
+        Channel channel = mock(Channel.class);
+        when(channel.config()).thenReturn(channelConfig);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        return ctx;
+    }
+
+    private static ProcessingExecutor createExecutor(int threads, int queueLimit) {
+        Config config = new Config();
+        config.setString(Keys.PROCESSING_THREADS, String.valueOf(threads));
+        config.setString(Keys.PROCESSING_QUEUE_LIMIT, String.valueOf(queueLimit));
+        return new ProcessingExecutor(config);
+    }
+
+    private static Position createPosition(long deviceId, double latitude) {
+        Position position = new Position("test");
+        position.setRastreador_id(deviceId);
+        position.setLatitude(latitude);
+        return position;
+    }
+
+    @Test
+    public void testOrderAndBackpressure() throws Exception {
+        ProcessingExecutor executor = createExecutor(4, 4);
+        DeferredHandler handler = new DeferredHandler();
+        ProcessingHandler processingHandler = new ProcessingHandler(executor, List.of(handler));
+        ChannelHandlerContext ctx = mockContext();
+
+        for (int i = 0; i < 4; i++) {
+            processingHandler.channelRead(ctx, createPosition(1, i));
+        }
+        assertFalse(autoRead.get());
+
+        assertEquals(0, handler.next().getLatitude());
+        assertNull(handler.positions.poll(50, TimeUnit.MILLISECONDS));
+
+        handler.resume();
+        assertEquals(1, handler.next().getLatitude());
+        assertFalse(autoRead.get());
+
+        handler.resume();
+        assertEquals(2, handler.next().getLatitude());
+        assertTrue(autoRead.get());
+
+        handler.resume();
+        assertEquals(3, handler.next().getLatitude());
+        handler.resume();
+
+        executor.stop();
+    }
+
+    @Test
+    public void testDroppedMessageReleasesQueue() throws Exception {
+        ProcessingExecutor executor = createExecutor(1, 2);
+        ProcessingHandler processingHandler = new ProcessingHandler(
+                executor, List.<ChannelInboundHandler>of(new DroppingHandler(), new FailingHandler()));
+        ChannelHandlerContext ctx = mockContext();
+
+        for (int i = 0; i < 3; i++) {
+            processingHandler.channelRead(ctx, createPosition(1, i));
+        }
+
+        executor.stop();
+
+        verify(ctx, times(3)).writeAndFlush(any());
+        verify(ctx, times(0)).fireExceptionCaught(any());
+        assertTrue(autoRead.get());
+    }
+
+    @Test
+    public void testOtherMessagesPassedThrough() throws Exception {
+        ProcessingExecutor executor = createExecutor(1, 2);
+        ProcessingHandler processingHandler = new ProcessingHandler(executor, List.of(new FailingHandler()));
+        ChannelHandlerContext ctx = mockContext();
+
+        Object message = new Object();
+        processingHandler.channelRead(ctx, message);
+
+        verify(ctx).fireChannelRead(message);
+        executor.stop();
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.traccar.database;
+
+import io.netty.util.Timer;
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.model.Device;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Request;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceLookupServiceTest {
+
+    private static Device createDevice(long id, String uniqueId) {
+        Device device = new Device();
+        device.setId(id);
+        device.setImei(uniqueId);
+        return device;
+    }
+
+    @Test
+    public void testDirectoryLookup() throws StorageException {
+        Device device = createDevice(1, "123");
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any(Request.class))).thenReturn(List.of(device));
+
+        DeviceLookupService service = new DeviceLookupService(
+                new Config(), storage, mock(Timer.class), mock(BroadcastService.class));
+
+        assertSame(device, service.lookup(new String[] {"123"}));
+        verify(storage, times(1)).getObjects(eq(Device.class), any(Request.class));
+        service.stop();
+    }
+
+    @Test
+    public void testFirstIdentifierPriority() throws StorageException {
+        Device known = createDevice(1, "456");
+        Device added = createDevice(2, "123");
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any(Request.class)))
+                .thenReturn(List.of(known), List.of(added));
+
+        DeviceLookupService service = new DeviceLookupService(
+                new Config(), storage, mock(Timer.class), mock(BroadcastService.class));
+
+        assertSame(added, service.lookup(new String[] {"123", "456"}));
+        assertSame(added, service.lookup(new String[] {"123", "456"}));
+        service.stop();
+    }
+
+    @Test
+    public void testFallbackToLaterIdentifier() throws StorageException {
+        Device known = createDevice(1, "456");
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any(Request.class)))
+                .thenReturn(List.of(known), List.of());
+
+        DeviceLookupService service = new DeviceLookupService(
+                new Config(), storage, mock(Timer.class), mock(BroadcastService.class));
+
+        assertSame(known, service.lookup(new String[] {"123", "456"}));
+        assertNull(service.lookup(new String[] {"789"}));
+        service.stop();
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.traccar.geocoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.database.StatisticsManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingGeocoderTest {
+
+    private static class DeferredGeocoder implements Geocoder {
+
+        private final List<ReverseGeocoderCallback> callbacks = new ArrayList<>();
+
+        @Override
+        public String getAddress(double latitude, double longitude, ReverseGeocoderCallback callback) {
+            callbacks.add(callback);
+            return null;
+        }
+
+        @Override
+        public void setStatisticsManager(StatisticsManager statisticsManager) {
+        }
+
+    }
+
+    private static class ResultCallback implements Geocoder.ReverseGeocoderCallback {
+
+        private String address;
+
+        @Override
+        public void onSuccess(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+        }
+
+    }
+
+    @Test
+    public void testCoalescedRequests() {
+        Config config = new Config();
+        config.setString(Keys.GEOCODER_CACHE_SIZE, "10");
+        GeocoderCache cache = new GeocoderCache(config, new ObjectMapper());
+        DeferredGeocoder upstream = new DeferredGeocoder();
+        Geocoder geocoder = new CachingGeocoder(upstream, cache);
+
+        ResultCallback first = new ResultCallback();
+        ResultCallback second = new ResultCallback();
+        geocoder.getAddress(10, 20, first);
+        geocoder.getAddress(10, 20, second);
+        assertEquals(1, upstream.callbacks.size());
+
+        upstream.callbacks.get(0).onSuccess("address");
+        assertEquals("address", first.address);
+        assertEquals("address", second.address);
+
+        ResultCallback third = new ResultCallback();
+        geocoder.getAddress(10, 20, third);
+        assertEquals("address", third.address);
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getCoalesced());
+        assertEquals(1, cache.getHits());
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.traccar.geocoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GeocoderCacheTest {
+
+    private static GeocoderCache createCache(int size) {
+        Config config = new Config();
+        config.setString(Keys.GEOCODER_CACHE_SIZE, String.valueOf(size));
+        config.setString(Keys.GEOCODER_CACHE_TTL, "60");
+        return new GeocoderCache(config, new ObjectMapper());
+    }
+
+    private static GeocoderCache.Entry createEntry(String address, long age) {
+        GeocoderCache.Entry entry = new GeocoderCache.Entry();
+        entry.setAddress(address);
+        entry.setTime(System.currentTimeMillis() - age);
+        return entry;
+    }
+
+    @Test
+    public void testExpiredEntryRemoved() {
+        GeocoderCache cache = createCache(10);
+        cache.put(1, createEntry("expired", 120_000));
+        cache.put(2, "live");
+
+        assertNull(cache.get(1));
+        assertEquals(1, cache.size());
+        assertEquals("live", cache.get(2));
+    }
+
+    @Test
+    public void testRefreshedEntryKept() {
+        GeocoderCache cache = createCache(2);
+        cache.put(1, createEntry("expired", 120_000));
+        cache.put(2, "second");
+        cache.put(1, "refreshed");
+        cache.put(3, "third");
+
+        assertEquals("refreshed", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("third", cache.get(3));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        GeocoderCache cache = createCache(2);
+        cache.put(1, "first");
+        cache.put(2, "second");
+        cache.get(1);
+        cache.put(3, "third");
+
+        assertEquals("first", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testEvictedInBatches() {
+        GeocoderCache cache = createCache(32);
+        for (int i = 1; i <= 32; i++) {
+            cache.put(i, "address" + i);
+        }
+        cache.get(1);
+        cache.put(33, "address33");
+
+        assertEquals(30, cache.size());
+        assertEquals(3, cache.getEvictions());
+        assertEquals("address1", cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.get(4));
+        assertEquals("address5", cache.get(5));
+        assertEquals("address33", cache.get(33));
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.traccar.geocoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OfflineGeocoderTest {
+
+    private static String place(long id, String name, double latitude, double longitude, String featureClass) {
+        return id + "\t" + name + "\t" + name + "\t\t" + latitude + "\t" + longitude + "\t" + featureClass + "\t\tUS";
+    }
+
+    private static OfflineGeocoder createGeocoder(Path directory, String... lines) throws IOException {
+        Path file = directory.resolve("places.txt");
+        Files.writeString(file, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return new OfflineGeocoder(file.toString(), null, new AddressFormat("%t"));
+    }
+
+    @Test
+    public void testNearestAcrossCellBorder(@TempDir Path directory) throws IOException {
+        OfflineGeocoder geocoder = createGeocoder(directory,
+                place(1, "Same", 10.01, 20.05, "P"),
+                place(2, "Near", 10.101, 20.05, "P"));
+
+        assertEquals("Near", geocoder.getAddress(10.099, 20.05, null));
+        assertEquals("Same", geocoder.getAddress(10.02, 20.05, null));
+    }
+
+    @Test
+    public void testAntimeridian(@TempDir Path directory) throws IOException {
+        OfflineGeocoder geocoder = createGeocoder(directory,
+                place(1, "East", -18.0, 179.98, "P"),
+                place(2, "Far", -18.0, 179.7, "P"));
+
+        assertEquals("East", geocoder.getAddress(-18.0, -179.95, null));
+        assertEquals("East", geocoder.getAddress(-18.0, 179.99, null));
+    }
+
+    @Test
+    public void testHighLatitude(@TempDir Path directory) throws IOException {
+        OfflineGeocoder geocoder = createGeocoder(directory,
+                place(1, "North", 70.15, 20.0, "P"),
+                place(2, "East", 70.0, 20.35, "P"));
+
+        assertEquals("East", geocoder.getAddress(70.0, 20.0, null));
+    }
+
+    @Test
+    public void testMalformedLinesSkipped(@TempDir Path directory) throws IOException {
+        OfflineGeocoder geocoder = createGeocoder(directory,
+                "garbage",
+                "",
+                "3\tBroken\tBroken\t\tabc\t20.05\tP",
+                place(4, "Mountain", 10.05, 20.05, "T"),
+                place(5, "Town", 10.01, 20.05, "P"));
+
+        assertEquals("Town", geocoder.getAddress(10.05, 20.05, null));
+    }
+
+    @Test
+    public void testReloadOnModification(@TempDir Path directory) throws Exception {
+        OfflineGeocoder geocoder = createGeocoder(directory, place(1, "Old", 10.0, 20.0, "P"));
+
+        Path file = directory.resolve("places.txt");
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, place(1, "New", 10.0, 20.0, "P") + "\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 10000));
+
+        String address = geocoder.getAddress(10.0, 20.0, null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"New".equals(address) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            address = geocoder.getAddress(10.0, 20.0, null);
+        }
+        assertEquals("New", address);
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.traccar.geofence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares index lookups with checking every geofence, for geofences spread over a 10 by 10 degree area.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceIndexBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"circle", "polygon", "polyline"})
+    private String type;
+
+    @Param({"10000"})
+    private int count;
+
+    private final Config config = new Config();
+    private final List<Geofence> geofences = new ArrayList<>();
+    private GeofenceIndex index;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int point;
+
+    private static String createArea(String type, double latitude, double longitude, Random random) {
+        double size = 0.005 + random.nextDouble() * 0.02;
+        switch (type) {
+            case "circle":
+                return String.format(Locale.ROOT, "CIRCLE (%f %f, %f)", latitude, longitude, size * 100000);
+            case "polygon":
+                return String.format(Locale.ROOT, "POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
+                        latitude, longitude, latitude + size, longitude, latitude + size, longitude + size,
+                        latitude, longitude + size, latitude, longitude);
+            default:
+                return String.format(Locale.ROOT, "LINESTRING (%f %f, %f %f, %f %f)",
+                        latitude, longitude, latitude + size, longitude + size / 2,
+                        latitude + size * 2, longitude);
+        }
+    }
+
+    @Setup
+    public void setup() throws ParseException {
+        Random random = new Random(1);
+        index = new GeofenceIndex(config);
+        for (int i = 0; i < count; i++) {
+            Geofence geofence = new Geofence();
+            geofence.setId(i + 1);
+            geofence.setArea(createArea(type, random.nextDouble() * 10, random.nextDouble() * 10, random));
+            geofences.add(geofence);
+            index.update(geofence);
+        }
+        latitudes = new double[POINTS];
+        longitudes = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = random.nextDouble() * 10;
+            longitudes[i] = random.nextDouble() * 10;
+        }
+    }
+
+    @Benchmark
+    public int findIndexed() {
+        int i = point++ & (POINTS - 1);
+        int result = 0;
+        for (Geofence geofence : index.find(latitudes[i], longitudes[i])) {
+            if (geofence.getGeometry().containsPoint(config, geofence, latitudes[i], longitudes[i])) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int findLinear() {
+        int i = point++ & (POINTS - 1);
+        int result = 0;
+        for (Geofence geofence : geofences) {
+            if (geofence.getGeometry().containsPoint(config, geofence, latitudes[i], longitudes[i])) {
+                result += 1;
+            }
+        }
+        return result;
+    }
+
+}
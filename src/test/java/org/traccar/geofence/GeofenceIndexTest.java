@@ -0,0 +1,105 @@
+package org.traccar.geofence;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.text.ParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeofenceIndexTest {
+
+    private static Geofence createGeofence(long id, String area) throws ParseException {
+        Geofence geofence = new Geofence();
+        geofence.setId(id);
+        geofence.setArea(area);
+        return geofence;
+    }
+
+    @Test
+    public void testSingleCell() throws ParseException {
+        GeofenceIndex index = new GeofenceIndex(new Config());
+        Geofence geofence = createGeofence(
+                1, "POLYGON ((10.01 20.01, 10.01 20.04, 10.04 20.04, 10.04 20.01, 10.01 20.01))");
+        index.update(geofence);
+
+        assertEquals(GeofenceIndex.getCellKey(10.01, 20.01), GeofenceIndex.getCellKey(10.04, 20.04));
+        assertEquals(List.of(geofence), index.find(10.02, 20.02));
+        assertTrue(index.find(10.045, 20.045).isEmpty());
+        assertEquals(List.of(geofence), index.findCell(10.045, 20.045));
+        assertTrue(index.find(10.07, 20.02).isEmpty());
+        assertTrue(index.findCell(10.07, 20.02).isEmpty());
+    }
+
+    @Test
+    public void testMultipleCells() throws ParseException {
+        GeofenceIndex index = new GeofenceIndex(new Config());
+        Geofence geofence = createGeofence(
+                1, "POLYGON ((10.01 20.01, 10.01 20.02, 10.09 20.02, 10.09 20.01, 10.01 20.01))");
+        index.update(geofence);
+
+        assertEquals(List.of(geofence), index.find(10.02, 20.015));
+        assertEquals(List.of(geofence), index.find(10.08, 20.015));
+        assertTrue(index.find(10.12, 20.015).isEmpty());
+    }
+
+    @Test
+    public void testCircle() throws ParseException {
+        GeofenceIndex index = new GeofenceIndex(new Config());
+        Geofence geofence = createGeofence(1, "CIRCLE (10.02 20.02, 100)");
+        index.update(geofence);
+
+        assertEquals(List.of(geofence), index.find(10.02, 20.02));
+        assertTrue(index.find(10.03, 20.02).isEmpty());
+    }
+
+    @Test
+    public void testLarge() throws ParseException {
+        GeofenceIndex index = new GeofenceIndex(new Config());
+        Geofence large = createGeofence(
+                1, "POLYGON ((10.01 20.01, 10.01 22.01, 12.01 22.01, 12.01 20.01, 10.01 20.01))");
+        Geofence small = createGeofence(
+                2, "POLYGON ((11.01 21.01, 11.01 21.04, 11.04 21.04, 11.04 21.01, 11.01 21.01))");
+        index.update(large);
+        index.update(small);
+
+        assertEquals(List.of(large), index.findCell(50, 50));
+        assertTrue(index.find(50, 50).isEmpty());
+        assertEquals(List.of(large), index.find(10.5, 20.5));
+        assertEquals(List.of(small, large), index.find(11.02, 21.02));
+
+        index.remove(1);
+        assertTrue(index.findCell(50, 50).isEmpty());
+        assertEquals(List.of(small), index.find(11.02, 21.02));
+    }
+
+    @Test
+    public void testUpdateAndRemove() throws ParseException {
+        GeofenceIndex index = new GeofenceIndex(new Config());
+        Geofence geofence = createGeofence(
+                1, "POLYGON ((10.01 20.01, 10.01 20.04, 10.04 20.04, 10.04 20.01, 10.01 20.01))");
+        index.update(geofence);
+        long version = index.getVersion();
+
+        index.update(createGeofence(
+                1, "POLYGON ((10.01 20.01, 10.01 20.04, 10.04 20.04, 10.04 20.01, 10.01 20.01))"));
+        assertEquals(version, index.getVersion());
+
+        Geofence moved = createGeofence(
+                1, "POLYGON ((30.01 40.01, 30.01 40.04, 30.04 40.04, 30.04 40.01, 30.01 40.01))");
+        index.update(moved);
+        assertNotEquals(version, index.getVersion());
+        assertTrue(index.findCell(10.02, 20.02).isEmpty());
+        assertEquals(List.of(moved), index.find(30.02, 40.02));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertTrue(index.find(30.02, 40.02).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+}
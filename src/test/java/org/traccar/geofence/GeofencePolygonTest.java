@@ -0,0 +1,27 @@
+package org.traccar.geofence;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.text.ParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GeofencePolygonTest {
+
+    @Test
+    public void testDistanceToBoundaryOnEdge() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolygon(
+                "POLYGON ((-54 10, -53.99 10, -53.99 10.01, -54 10.01, -54 10))");
+        assertEquals(0, geofenceGeometry.distanceToBoundary(new Config(), new Geofence(), -53.997, 10), 0.01);
+    }
+
+    @Test
+    public void testDistanceToBoundaryInside() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolygon(
+                "POLYGON ((-54 10, -53.99 10, -53.99 10.01, -54 10.01, -54 10))");
+        assertEquals(327, geofenceGeometry.distanceToBoundary(new Config(), new Geofence(), -53.995, 10.005), 1);
+    }
+
+}
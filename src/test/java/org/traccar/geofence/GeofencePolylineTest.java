@@ -0,0 +1,29 @@
+package org.traccar.geofence;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.model.Geofence;
+
+import java.text.ParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GeofencePolylineTest {
+
+    @Test
+    public void testDistanceToBoundaryOnSegment() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolyline("LINESTRING (-54 10, -53.99 10)");
+        Geofence geofence = new Geofence();
+        geofence.getAttributes().put("polylineDistance", 25.0);
+        assertEquals(25, geofenceGeometry.distanceToBoundary(new Config(), geofence, -53.997, 10), 0.01);
+    }
+
+    @Test
+    public void testDistanceToBoundaryRepeatedPoint() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolyline("LINESTRING (-54 10, -54 10, -53.99 10)");
+        Geofence geofence = new Geofence();
+        geofence.getAttributes().put("polylineDistance", 25.0);
+        assertEquals(40, geofenceGeometry.distanceToBoundary(new Config(), geofence, -53.995, 10.001), 1);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.traccar.geolocation;
+
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.CellTower;
+import org.traccar.model.Network;
+import org.traccar.model.WifiAccessPoint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GeolocationCacheTest {
+
+    private static GeolocationCache createCache(int size, long ttl) {
+        Config config = new Config();
+        config.setString(Keys.GEOLOCATION_CACHE_SIZE, String.valueOf(size));
+        config.setString(Keys.GEOLOCATION_CACHE_TTL, String.valueOf(ttl));
+        return new GeolocationCache(config);
+    }
+
+    private static Network createNetwork(int cellId) {
+        return new Network(CellTower.from(250, 1, 100, cellId));
+    }
+
+    @Test
+    public void testRefreshedEntryEvictedLast() {
+        GeolocationCache cache = createCache(2, 0);
+
+        cache.put(createNetwork(1), 10, 20, 100);
+        cache.put(createNetwork(2), 11, 21, 100);
+        cache.put(createNetwork(1), 12, 22, 100);
+        cache.put(createNetwork(3), 13, 23, 100);
+
+        assertEquals(12, cache.get(createNetwork(1)).getLatitude(), 0.0001);
+        assertNull(cache.get(createNetwork(2)));
+        assertNotNull(cache.get(createNetwork(3)));
+    }
+
+    @Test
+    public void testExpiredEntryRemoved() throws Exception {
+        GeolocationCache cache = createCache(2, 1);
+
+        cache.put(createNetwork(1), 10, 20, 100);
+        Thread.sleep(1100);
+        assertNull(cache.get(createNetwork(1)));
+
+        cache.put(createNetwork(2), 11, 21, 100);
+        cache.put(createNetwork(3), 12, 22, 100);
+        assertNotNull(cache.get(createNetwork(2)));
+        assertNotNull(cache.get(createNetwork(3)));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testMacAddressCase() {
+        GeolocationCache cache = createCache(2, 0);
+
+        cache.put(new Network(WifiAccessPoint.from("0A:1B:2C:3D:4E:5F", -50)), 10, 20, 100);
+        assertNotNull(cache.get(new Network(WifiAccessPoint.from("0a:1b:2c:3d:4e:5f", -60))));
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.traccar.handler;
+
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlScript;
+import org.apache.commons.jexl3.MapContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.traccar.config.Config;
+import org.traccar.model.Attribute;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the handler with the previous approach of creating scripts and copying every position property into a
+ * {@link MapContext} for each attribute.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputedAttributesBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+        "velocidade * 1.852",
+        "ignition ? 1 : 0",
+        "power > 12.5",
+        "fuel / 100",
+        "latitude + longitude",
+        "odometer / 1000",
+        "io1 + io2 + io3",
+        "battery < 3.6",
+        "math:abs(curso - 180)",
+        "motion && velocidade > 5",
+    };
+
+    private static final int ATTRIBUTES = 25;
+
+    private final JexlEngine engine = new JexlBuilder()
+            .strict(true)
+            .namespaces(Collections.singletonMap("math", Math.class))
+            .create();
+
+    private ComputedAttributesHandler handler;
+    private List<Attribute> attributes;
+
+    @Setup
+    public void setup() {
+        attributes = new ArrayList<>();
+        for (int i = 0; i < ATTRIBUTES; i++) {
+            Attribute attribute = new Attribute();
+            attribute.setId(i + 1);
+            attribute.setAttribute("computed" + i);
+            attribute.setType("number");
+            attribute.setExpression(EXPRESSIONS[i % EXPRESSIONS.length]);
+            attributes.add(attribute);
+        }
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getDeviceObjects(1, Attribute.class)).thenReturn(attributes);
+        handler = new ComputedAttributesHandler(new Config(), cacheManager);
+    }
+
+    private Position createPosition() {
+        Position position = new Position("test");
+        position.setRastreador_id(1);
+        position.setLatitude(10);
+        position.setLongitude(20);
+        position.setVelocidade(30);
+        position.setCurso(90);
+        position.set("ignition", true);
+        position.set("motion", true);
+        position.set("power", 13.2);
+        position.set("battery", 4.1);
+        position.set("fuel", 55.0);
+        position.set("odometer", 123456.0);
+        position.set("io1", 1);
+        position.set("io2", 2);
+        position.set("io3", 3);
+        return position;
+    }
+
+    private static MapContext prepareContext(Position position) throws ReflectiveOperationException {
+        MapContext result = new MapContext();
+        Set<Method> methods = new HashSet<>(Arrays.asList(position.getClass().getMethods()));
+        Arrays.asList(Object.class.getMethods()).forEach(methods::remove);
+        for (Method method : methods) {
+            if (method.getName().startsWith("get") && method.getParameterTypes().length == 0) {
+                String name = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
+                if (!method.getReturnType().equals(Map.class)) {
+                    result.set(name, method.invoke(position));
+                } else {
+                    for (Object key : ((Map<?, ?>) method.invoke(position)).keySet()) {
+                        result.set((String) key, ((Map<?, ?>) method.invoke(position)).get(key));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void computeMapContext(Blackhole blackhole) throws ReflectiveOperationException {
+        Position position = createPosition();
+        for (Attribute attribute : attributes) {
+            JexlScript script = engine.createScript(attribute.getExpression());
+            blackhole.consume(script.execute(prepareContext(position)));
+        }
+    }
+
+    @Benchmark
+    public Position computeHandler() {
+        return handler.handlePosition(createPosition());
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.traccar.handler;
+
+import org.apache.commons.jexl3.JexlException;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Attribute;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComputedAttributesHandlerTest {
+
+    private static Attribute createAttribute(String expression) {
+        Attribute attribute = new Attribute();
+        attribute.setAttribute("result");
+        attribute.setType("number");
+        attribute.setExpression(expression);
+        return attribute;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testVariablePrecedence() {
+        Device device = new Device();
+        device.setId(1);
+        device.set("latitude", 30.0);
+        device.set("fuel", 60.0);
+        device.set("threshold", 70.0);
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getObject(Device.class, 1)).thenReturn(device);
+
+        Config config = new Config();
+        config.setString(Keys.PROCESSING_COMPUTED_ATTRIBUTES_DEVICE_ATTRIBUTES, "true");
+        ComputedAttributesHandler handler = new ComputedAttributesHandler(config, cacheManager);
+
+        Position position = new Position();
+        position.setRastreador_id(1);
+        position.setLatitude(10);
+        position.set("latitude", 20.0);
+        position.set("fuel", 50.0);
+
+        assertEquals(10.0, handler.computeAttribute(createAttribute("latitude"), position));
+        assertEquals(50.0, handler.computeAttribute(createAttribute("fuel"), position));
+        assertEquals(70.0, handler.computeAttribute(createAttribute("threshold"), position));
+        assertEquals(80.0, handler.computeAttribute(createAttribute("fuel + threshold - latitude * 4"), position));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testDeviceAttributesDisabled() {
+        Device device = new Device();
+        device.setId(1);
+        device.set("fuel", 60.0);
+
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getObject(Device.class, 1)).thenReturn(device);
+        ComputedAttributesHandler handler = new ComputedAttributesHandler(new Config(), cacheManager);
+
+        Position position = new Position();
+        position.setRastreador_id(1);
+
+        Object result;
+        try {
+            result = handler.computeAttribute(createAttribute("fuel"), position);
+        } catch (JexlException e) {
+            result = null;
+        }
+        assertNull(result);
+    }
+
+}
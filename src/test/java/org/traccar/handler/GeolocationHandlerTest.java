@@ -0,0 +1,74 @@
+package org.traccar.handler;
+
+import io.netty.channel.ChannelHandlerContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.geolocation.GeolocationCache;
+import org.traccar.model.CellTower;
+import org.traccar.model.Network;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class GeolocationHandlerTest {
+
+    private static GeolocationHandler createOfflineHandler(Path directory) throws IOException {
+        Path file = directory.resolve("towers.csv");
+        Files.writeString(file, "GSM,250,1,100,200,0,37.6,55.7,1000\n", StandardCharsets.UTF_8);
+
+        Config config = new Config();
+        config.setString(Keys.GEOLOCATION_PROCESS_INVALID_POSITIONS, "true");
+        config.setString(Keys.GEOLOCATION_CACHE_FILE, file.toString());
+        GeolocationCache geolocationCache = new GeolocationCache(config);
+        assertTrue(geolocationCache.isEnabled());
+
+        return new GeolocationHandler(config, null, geolocationCache, mock(CacheManager.class), null);
+    }
+
+    private static Position createPosition(CellTower cellTower) {
+        Position position = new Position("test");
+        position.setRastreador_id(1);
+        position.setValido(false);
+        position.setRede(new Network(cellTower));
+        return position;
+    }
+
+    @Test
+    public void testOfflineOnly(@TempDir Path directory) throws IOException {
+        GeolocationHandler handler = createOfflineHandler(directory);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+
+        Position position = createPosition(CellTower.from(250, 1, 100, 200));
+        handler.channelRead(ctx, position);
+
+        verify(ctx).fireChannelRead(position);
+        assertTrue(position.getValido());
+        assertEquals(55.7, position.getLatitude(), 0.0001);
+        assertEquals(37.6, position.getLongitude(), 0.0001);
+    }
+
+    @Test
+    public void testOfflineOnlyUnknownTower(@TempDir Path directory) throws IOException {
+        GeolocationHandler handler = createOfflineHandler(directory);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+
+        Position position = createPosition(CellTower.from(250, 1, 100, 300));
+        handler.channelRead(ctx, position);
+
+        verify(ctx).fireChannelRead(position);
+        assertFalse(position.getValido());
+    }
+
+}
@@ -0,0 +1,230 @@
+package org.traccar.session.cache;
+
+import io.netty.util.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Device;
+import org.traccar.model.Notification;
+import org.traccar.model.Permission;
+import org.traccar.model.User;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the throughput of lock-free cache reads with the read-write lock path they replaced, at 1, 2, 4 and all
+ * available threads. Each operation does the reads of one processed message. Run with {@code -prof gc} to check
+ * allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheManagerBenchmark {
+
+    private static final int DEVICES = 10000;
+    private static final int USERS = 100;
+    private static final long NOTIFICATION_ID = 1;
+
+    /**
+     * Read path of the cache before it became lock-free, guarded by a read lock and resolving links on every read.
+     */
+    private static final class LockedCache {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<CacheKey, CacheValue> deviceCache = new HashMap<>();
+        private final Map<Long, Map<Class<? extends BaseModel>, Set<Long>>> deviceLinks = new HashMap<>();
+        private final Map<Long, List<User>> notificationUsers = new HashMap<>();
+
+        private <T extends BaseModel> T getObject(Class<T> clazz, long id) {
+            try {
+                lock.readLock().lock();
+                var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+                return cacheValue != null ? cacheValue.getValue() : null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private <T extends BaseModel> List<T> getDeviceObjects(long deviceId, Class<T> clazz) {
+            try {
+                lock.readLock().lock();
+                return deviceLinks.get(deviceId).getOrDefault(clazz, new LinkedHashSet<>()).stream()
+                        .map(id -> {
+                            var cacheValue = deviceCache.get(new CacheKey(clazz, id));
+                            return cacheValue != null ? cacheValue.<T>getValue() : null;
+                        })
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private List<User> getNotificationUsers(long notificationId, long deviceId) {
+            try {
+                lock.readLock().lock();
+                var users = deviceLinks.get(deviceId).get(User.class).stream()
+                        .collect(Collectors.toUnmodifiableSet());
+                return notificationUsers.getOrDefault(notificationId, new LinkedList<>()).stream()
+                        .filter(user -> users.contains(user.getId()))
+                        .collect(Collectors.toUnmodifiableList());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+    }
+
+    private CacheManager cacheManager;
+    private final LockedCache lockedCache = new LockedCache();
+
+    @Setup
+    public void setup() throws StorageException {
+        List<Device> devices = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        List<Permission> devicePermissions = new ArrayList<>();
+        List<Permission> notificationPermissions = new ArrayList<>();
+        for (long userId = 1; userId <= USERS; userId++) {
+            User user = new User();
+            user.setId(userId);
+            users.add(user);
+            notificationPermissions.add(new Permission(User.class, userId, Notification.class, NOTIFICATION_ID));
+        }
+        for (long deviceId = 1; deviceId <= DEVICES; deviceId++) {
+            Device device = new Device();
+            device.setId(deviceId);
+            devices.add(device);
+            devicePermissions.add(new Permission(User.class, deviceId % USERS + 1, Device.class, deviceId));
+        }
+        Notification notification = new Notification();
+        notification.setId(NOTIFICATION_ID);
+        notification.setAlways(true);
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any())).thenReturn(devices);
+        when(storage.getObjects(eq(User.class), any())).thenReturn(users);
+        when(storage.getObjects(eq(Notification.class), any())).thenReturn(List.of(notification));
+        when(storage.getObject(eq(Notification.class), any())).thenReturn(notification);
+        when(storage.getPermissions(User.class, Device.class)).thenReturn(devicePermissions);
+        when(storage.getPermissions(User.class, Notification.class)).thenReturn(notificationPermissions);
+
+        Config config = new Config();
+        config.setString(Keys.DATABASE_CACHE_WARMUP, "true");
+        cacheManager = new CacheManager(config, storage, mock(BroadcastService.class), mock(Timer.class));
+        cacheManager.invalidatePermission(false, User.class, 1, Notification.class, NOTIFICATION_ID);
+
+        for (User user : users) {
+            lockedCache.deviceCache.put(new CacheKey(User.class, user.getId()), new CacheValue(user));
+        }
+        for (Device device : devices) {
+            lockedCache.deviceCache.put(new CacheKey(Device.class, device.getId()), new CacheValue(device));
+        }
+        for (Permission permission : devicePermissions) {
+            lockedCache.deviceLinks.put(permission.getPropertyId(), new HashMap<>(Map.of(
+                    User.class, new LinkedHashSet<>(List.of(permission.getOwnerId())))));
+        }
+        lockedCache.notificationUsers.put(NOTIFICATION_ID, new LinkedList<>(users));
+    }
+
+    private static long randomDeviceId() {
+        return ThreadLocalRandom.current().nextLong(DEVICES) + 1;
+    }
+
+    private void read(Blackhole blackhole) {
+        long deviceId = randomDeviceId();
+        blackhole.consume(cacheManager.getObject(Device.class, deviceId));
+        blackhole.consume(cacheManager.getDeviceObjects(deviceId, User.class));
+        blackhole.consume(cacheManager.getNotificationUsers(NOTIFICATION_ID, deviceId));
+    }
+
+    private void readLocked(Blackhole blackhole) {
+        long deviceId = randomDeviceId();
+        blackhole.consume(lockedCache.getObject(Device.class, deviceId));
+        blackhole.consume(lockedCache.getDeviceObjects(deviceId, User.class));
+        blackhole.consume(lockedCache.getNotificationUsers(NOTIFICATION_ID, deviceId));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void read1(Blackhole blackhole) {
+        read(blackhole);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void read2(Blackhole blackhole) {
+        read(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void read4(Blackhole blackhole) {
+        read(blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void readMax(Blackhole blackhole) {
+        read(blackhole);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void readLocked1(Blackhole blackhole) {
+        readLocked(blackhole);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void readLocked2(Blackhole blackhole) {
+        readLocked(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readLocked4(Blackhole blackhole) {
+        readLocked(blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void readLockedMax(Blackhole blackhole) {
+        readLocked(blackhole);
+    }
+
+}
@@ -0,0 +1,304 @@
+package org.traccar.session.cache;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Attribute;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Calendar;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Group;
+import org.traccar.model.Notification;
+import org.traccar.model.Permission;
+import org.traccar.model.User;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Condition;
+import org.traccar.storage.query.Request;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Applies changes incrementally and compares the resulting device links with a cache loaded from scratch.
+ */
+public class CacheManagerInvalidationTest {
+
+    private static final List<Class<? extends BaseModel>> LINKED_CLASSES = List.of(
+            Attribute.class, Geofence.class, Calendar.class, Group.class, User.class, Notification.class);
+
+    private final Storage storage = new MemoryStorage();
+
+    private <T extends BaseModel> T add(T object) throws StorageException {
+        object.setId(storage.addObject(object, new Request(new Columns.Exclude("id"))));
+        return object;
+    }
+
+    private void link(
+            Class<? extends BaseModel> ownerClass, long ownerId,
+            Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
+        storage.addPermission(new Permission(ownerClass, ownerId, propertyClass, propertyId));
+    }
+
+    private void unlink(
+            Class<? extends BaseModel> ownerClass, long ownerId,
+            Class<? extends BaseModel> propertyClass, long propertyId) throws StorageException {
+        storage.removePermission(new Permission(ownerClass, ownerId, propertyClass, propertyId));
+    }
+
+    private Geofence addGeofence(long calendarId) throws StorageException, ParseException {
+        Geofence geofence = new Geofence();
+        geofence.setArea("CIRCLE (10 20, 100)");
+        geofence.setCalendarId(calendarId);
+        return add(geofence);
+    }
+
+    private Notification addNotification(long calendarId) throws StorageException {
+        Notification notification = new Notification();
+        notification.setAlways(true);
+        notification.setCalendarId(calendarId);
+        return add(notification);
+    }
+
+    private CacheManager createCacheManager(Timer timer, long invalidationDelay) throws StorageException {
+        Config config = new Config();
+        config.setString(Keys.GEOFENCE_ENABLE, "true");
+        config.setString(Keys.DATABASE_CACHE_INVALIDATION_DELAY, String.valueOf(invalidationDelay));
+        return new CacheManager(config, storage, mock(BroadcastService.class), timer);
+    }
+
+    private CacheManager createCacheManager(long... deviceIds) throws StorageException {
+        CacheManager cacheManager = createCacheManager(mock(Timer.class), 0);
+        for (long deviceId : deviceIds) {
+            cacheManager.addDevice(deviceId);
+        }
+        return cacheManager;
+    }
+
+    private static Map<Class<?>, Set<Long>> getLinks(CacheManager cacheManager, long deviceId) {
+        Map<Class<?>, Set<Long>> links = new HashMap<>();
+        for (var clazz : LINKED_CLASSES) {
+            links.put(clazz, cacheManager.getDeviceObjects(deviceId, clazz).stream()
+                    .map(BaseModel::getId)
+                    .collect(Collectors.toSet()));
+        }
+        return links;
+    }
+
+    private void assertSameAsReload(CacheManager cacheManager, long... deviceIds) throws StorageException {
+        CacheManager reloaded = createCacheManager(deviceIds);
+        for (long deviceId : deviceIds) {
+            assertEquals(getLinks(reloaded, deviceId), getLinks(cacheManager, deviceId));
+        }
+    }
+
+    @Test
+    public void testUnlinkReleasesCalendar() throws Exception {
+        Calendar calendar = add(new Calendar());
+        Device device = add(new Device());
+        Geofence first = addGeofence(calendar.getId());
+        Geofence second = addGeofence(calendar.getId());
+        link(Device.class, device.getId(), Geofence.class, first.getId());
+        link(Device.class, device.getId(), Geofence.class, second.getId());
+
+        CacheManager cacheManager = createCacheManager(device.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Calendar.class).size());
+
+        unlink(Device.class, device.getId(), Geofence.class, first.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Geofence.class, first.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertNotNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+
+        unlink(Device.class, device.getId(), Geofence.class, second.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Geofence.class, second.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+    }
+
+    @Test
+    public void testDeletedObjectReleasesCalendar() throws Exception {
+        Calendar calendar = add(new Calendar());
+        Device device = add(new Device());
+        Geofence geofence = addGeofence(calendar.getId());
+        link(Device.class, device.getId(), Geofence.class, geofence.getId());
+
+        CacheManager cacheManager = createCacheManager(device.getId());
+
+        storage.removeObject(Geofence.class, new Request(new Condition.Equals("id", geofence.getId())));
+        unlink(Device.class, device.getId(), Geofence.class, geofence.getId());
+        cacheManager.invalidateObject(false, Geofence.class, geofence.getId());
+
+        assertSameAsReload(cacheManager, device.getId());
+        assertNull(cacheManager.getObject(Geofence.class, geofence.getId()));
+        assertNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+    }
+
+    @Test
+    public void testDeviceLinks() throws Exception {
+        Calendar calendar = add(new Calendar());
+        Device device = add(new Device());
+        Attribute first = add(new Attribute());
+        Attribute second = add(new Attribute());
+        Geofence geofence = addGeofence(calendar.getId());
+        link(Device.class, device.getId(), Attribute.class, first.getId());
+
+        CacheManager cacheManager = createCacheManager(device.getId());
+
+        link(Device.class, device.getId(), Attribute.class, second.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Attribute.class, second.getId());
+        assertSameAsReload(cacheManager, device.getId());
+
+        link(Device.class, device.getId(), Geofence.class, geofence.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Geofence.class, geofence.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertNotNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+
+        unlink(Device.class, device.getId(), Attribute.class, first.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Attribute.class, first.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertNull(cacheManager.getObject(Attribute.class, first.getId()));
+    }
+
+    @Test
+    public void testUserDeviceLinks() throws Exception {
+        Calendar calendar = add(new Calendar());
+        Device device = add(new Device());
+        User user = add(new User());
+        Notification notification = addNotification(calendar.getId());
+        link(User.class, user.getId(), Notification.class, notification.getId());
+
+        CacheManager cacheManager = createCacheManager(device.getId());
+
+        link(User.class, user.getId(), Device.class, device.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(device.getId(), Notification.class).size());
+
+        unlink(User.class, user.getId(), Device.class, device.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+        assertSameAsReload(cacheManager, device.getId());
+        assertNull(cacheManager.getObject(User.class, user.getId()));
+        assertNull(cacheManager.getObject(Notification.class, notification.getId()));
+        assertNull(cacheManager.getObject(Calendar.class, calendar.getId()));
+    }
+
+    @Test
+    public void testUserNotificationLinks() throws Exception {
+        Calendar calendar = add(new Calendar());
+        Device first = add(new Device());
+        Device second = add(new Device());
+        User user = add(new User());
+        User other = add(new User());
+        Notification notification = addNotification(calendar.getId());
+        link(User.class, user.getId(), Device.class, first.getId());
+        link(User.class, user.getId(), Device.class, second.getId());
+        link(User.class, other.getId(), Device.class, first.getId());
+
+        CacheManager cacheManager = createCacheManager(first.getId(), second.getId());
+
+        link(User.class, user.getId(), Notification.class, notification.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Notification.class, notification.getId());
+        assertSameAsReload(cacheManager, first.getId(), second.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(second.getId(), Notification.class).size());
+
+        link(User.class, other.getId(), Notification.class, notification.getId());
+        cacheManager.invalidatePermission(
+                false, User.class, other.getId(), Notification.class, notification.getId());
+        assertSameAsReload(cacheManager, first.getId(), second.getId());
+
+        unlink(User.class, user.getId(), Notification.class, notification.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Notification.class, notification.getId());
+        assertSameAsReload(cacheManager, first.getId(), second.getId());
+        assertEquals(1, cacheManager.getDeviceObjects(first.getId(), Notification.class).size());
+        assertTrue(cacheManager.getDeviceObjects(second.getId(), Calendar.class).isEmpty());
+    }
+
+    @Test
+    public void testObjectsDeleted() throws Exception {
+        Device first = add(new Device());
+        Device second = add(new Device());
+        Attribute attribute = add(new Attribute());
+        link(Device.class, first.getId(), Attribute.class, attribute.getId());
+        link(Device.class, second.getId(), Attribute.class, attribute.getId());
+
+        CacheManager cacheManager = createCacheManager(first.getId(), second.getId());
+
+        storage.removeObject(Attribute.class, new Request(new Condition.Equals("id", attribute.getId())));
+        unlink(Device.class, first.getId(), Attribute.class, attribute.getId());
+        unlink(Device.class, second.getId(), Attribute.class, attribute.getId());
+        cacheManager.invalidateObject(false, Attribute.class, attribute.getId());
+        assertSameAsReload(cacheManager, first.getId(), second.getId());
+        assertNull(cacheManager.getObject(Attribute.class, attribute.getId()));
+
+        storage.removeObject(Device.class, new Request(new Condition.Equals("id", second.getId())));
+        cacheManager.invalidateObject(false, Device.class, second.getId());
+        assertSameAsReload(cacheManager, first.getId());
+        assertNull(cacheManager.getObject(Device.class, second.getId()));
+        assertNotNull(cacheManager.getObject(Device.class, first.getId()));
+    }
+
+    @Test
+    public void testDebouncedChangesCoalesced() throws Exception {
+        Device device = add(new Device());
+        Attribute first = add(new Attribute());
+        Attribute second = add(new Attribute());
+        User user = add(new User());
+        Notification notification = addNotification(0);
+        link(Device.class, device.getId(), Attribute.class, first.getId());
+        link(User.class, user.getId(), Notification.class, notification.getId());
+
+        Timer timer = mock(Timer.class);
+        when(timer.newTimeout(any(), anyLong(), any())).thenReturn(mock(Timeout.class));
+        CacheManager cacheManager = createCacheManager(timer, 1000);
+        cacheManager.addDevice(device.getId());
+        var before = getLinks(cacheManager, device.getId());
+
+        unlink(Device.class, device.getId(), Attribute.class, first.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Attribute.class, first.getId());
+        link(Device.class, device.getId(), Attribute.class, second.getId());
+        cacheManager.invalidatePermission(false, Device.class, device.getId(), Attribute.class, second.getId());
+        link(User.class, user.getId(), Device.class, device.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+        cacheManager.invalidatePermission(false, User.class, user.getId(), Device.class, device.getId());
+
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        verify(timer, times(1)).newTimeout(task.capture(), anyLong(), any(TimeUnit.class));
+        assertEquals(before, getLinks(cacheManager, device.getId()));
+
+        task.getValue().run(mock(Timeout.class));
+
+        var expected = getLinks(createCacheManager(device.getId()), device.getId());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!expected.equals(getLinks(cacheManager, device.getId())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, getLinks(cacheManager, device.getId()));
+        assertNull(cacheManager.getObject(Attribute.class, first.getId()));
+        cacheManager.stop();
+    }
+
+}
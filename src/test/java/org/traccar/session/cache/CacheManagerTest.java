@@ -0,0 +1,176 @@
+package org.traccar.session.cache;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import org.junit.jupiter.api.Test;
+import org.traccar.broadcast.BroadcastService;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.model.Device;
+import org.traccar.model.Notification;
+import org.traccar.model.Permission;
+import org.traccar.model.User;
+import org.traccar.storage.MemoryStorage;
+import org.traccar.storage.Storage;
+import org.traccar.storage.StorageException;
+import org.traccar.storage.query.Columns;
+import org.traccar.storage.query.Request;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CacheManagerTest {
+
+    private static Device createDevice() {
+        Device device = new Device();
+        device.setId(1);
+        device.setRastreador_posicao_id(100);
+        return device;
+    }
+
+    private static CacheManager createRetainingCacheManager(
+            Storage storage, long retention, int limit, int devices) throws StorageException {
+        for (int i = 0; i < devices; i++) {
+            Device device = new Device();
+            device.setId(storage.addObject(device, new Request(new Columns.Exclude("id"))));
+        }
+        Config config = new Config();
+        config.setString(Keys.DATABASE_CACHE_RETENTION, String.valueOf(retention));
+        config.setString(Keys.DATABASE_CACHE_RETENTION_LIMIT, String.valueOf(limit));
+        return new CacheManager(config, storage, mock(BroadcastService.class), mock(Timer.class));
+    }
+
+    @Test
+    public void testAddDeviceWithMissingPosition() throws StorageException {
+        Storage storage = mock(Storage.class);
+        when(storage.getObject(eq(Device.class), any())).thenReturn(createDevice());
+
+        CacheManager cacheManager = new CacheManager(
+                new Config(), storage, mock(BroadcastService.class), mock(Timer.class));
+        cacheManager.addDevice(1);
+
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+        assertNull(cacheManager.getPosition(1));
+    }
+
+    @Test
+    public void testWarmupWithMissingPosition() throws StorageException {
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any())).thenReturn(List.of(createDevice()));
+
+        Config config = new Config();
+        config.setString(Keys.DATABASE_CACHE_WARMUP, "true");
+        CacheManager cacheManager = new CacheManager(
+                config, storage, mock(BroadcastService.class), mock(Timer.class));
+
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+        assertNull(cacheManager.getPosition(1));
+    }
+
+    @Test
+    public void testNotificationUsers() throws StorageException {
+        User user1 = new User();
+        user1.setId(1);
+        User user2 = new User();
+        user2.setId(2);
+        Notification notification = new Notification();
+        notification.setId(10);
+        notification.setAlways(true);
+
+        Storage storage = mock(Storage.class);
+        when(storage.getObjects(eq(Device.class), any())).thenReturn(List.of(createDevice()));
+        when(storage.getObjects(eq(User.class), any())).thenReturn(List.of(user1, user2));
+        when(storage.getObjects(eq(Notification.class), any())).thenReturn(List.of(notification));
+        when(storage.getObject(eq(Notification.class), any())).thenReturn(notification);
+        when(storage.getPermissions(User.class, Device.class)).thenReturn(List.of(
+                new Permission(User.class, 1, Device.class, 1)));
+        when(storage.getPermissions(User.class, Notification.class)).thenReturn(List.of(
+                new Permission(User.class, 1, Notification.class, 10),
+                new Permission(User.class, 2, Notification.class, 10)));
+
+        Config config = new Config();
+        config.setString(Keys.DATABASE_CACHE_WARMUP, "true");
+        CacheManager cacheManager = new CacheManager(
+                config, storage, mock(BroadcastService.class), mock(Timer.class));
+        assertEquals(0, cacheManager.getNotificationUsers(10, 1).size());
+
+        cacheManager.invalidatePermission(false, User.class, 1, Notification.class, 10);
+        var users = cacheManager.getNotificationUsers(10, 1);
+        assertEquals(List.of(user1), users);
+        assertSame(users, cacheManager.getNotificationUsers(10, 1));
+        assertEquals(0, cacheManager.getNotificationUsers(10, 2).size());
+    }
+
+    @Test
+    public void testRetentionLimit() throws StorageException {
+        CacheManager cacheManager = createRetainingCacheManager(new MemoryStorage(), 60000, 2, 4);
+        for (long deviceId = 1; deviceId <= 4; deviceId++) {
+            cacheManager.addDevice(deviceId);
+        }
+        assertEquals(4, cacheManager.getMisses());
+
+        cacheManager.removeDevice(1);
+        cacheManager.removeDevice(2);
+        cacheManager.removeDevice(3);
+        assertNull(cacheManager.getObject(Device.class, 1));
+        assertNotNull(cacheManager.getObject(Device.class, 2));
+        assertNotNull(cacheManager.getObject(Device.class, 3));
+        assertEquals(1, cacheManager.getEvictions());
+
+        cacheManager.addDevice(2);
+        assertEquals(1, cacheManager.getHits());
+        assertEquals(4, cacheManager.getMisses());
+
+        cacheManager.removeDevice(4);
+        cacheManager.removeDevice(2);
+        assertNull(cacheManager.getObject(Device.class, 3));
+        assertNotNull(cacheManager.getObject(Device.class, 4));
+        assertNotNull(cacheManager.getObject(Device.class, 2));
+        assertEquals(2, cacheManager.getEvictions());
+
+        cacheManager.addDevice(1);
+        assertEquals(5, cacheManager.getMisses());
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+    }
+
+    @Test
+    public void testRetentionTime() throws Exception {
+        CacheManager cacheManager = createRetainingCacheManager(new MemoryStorage(), 200, 10, 2);
+        cacheManager.addDevice(1);
+        cacheManager.addDevice(2);
+
+        cacheManager.removeDevice(1);
+        assertNotNull(cacheManager.getObject(Device.class, 1));
+
+        Thread.sleep(300);
+        cacheManager.removeDevice(2);
+        assertNull(cacheManager.getObject(Device.class, 1));
+        assertNotNull(cacheManager.getObject(Device.class, 2));
+        assertEquals(1, cacheManager.getEvictions());
+    }
+
+    @Test
+    public void testRetentionSweepCancelled() throws StorageException {
+        Timeout timeout = mock(Timeout.class);
+        Timer timer = mock(Timer.class);
+        when(timer.newTimeout(any(), anyLong(), any())).thenReturn(timeout);
+
+        Config config = new Config();
+        config.setString(Keys.DATABASE_CACHE_RETENTION, "60000");
+        CacheManager cacheManager = new CacheManager(config, new MemoryStorage(), mock(BroadcastService.class), timer);
+        cacheManager.stop();
+
+        verify(timeout).cancel();
+    }
+
+}
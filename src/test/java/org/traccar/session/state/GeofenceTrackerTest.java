@@ -0,0 +1,144 @@
+package org.traccar.session.state;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.traccar.config.Config;
+import org.traccar.geofence.GeofenceIndex;
+import org.traccar.model.Geofence;
+import org.traccar.model.Position;
+import org.traccar.session.cache.CacheManager;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GeofenceTrackerTest {
+
+    private final Config config = new Config();
+    private final GeofenceIndex geofenceIndex = new GeofenceIndex(config);
+
+    private Set<Long> deviceGeofences = Set.of();
+    private Position lastPosition;
+    private long time = 1000000;
+
+    private GeofenceTracker tracker;
+
+    private static Geofence createGeofence(long id, String area) throws ParseException {
+        Geofence geofence = new Geofence();
+        geofence.setId(id);
+        geofence.setArea(area);
+        return geofence;
+    }
+
+    private Position createPosition(double latitude, double longitude) {
+        Position position = new Position("test");
+        position.setRastreador_id(1);
+        position.setDatahora_calculada(new Date(time += 1000));
+        position.setLatitude(latitude);
+        position.setLongitude(longitude);
+        return position;
+    }
+
+    @BeforeEach
+    public void setUp() throws ParseException {
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getGeofenceIndex()).thenReturn(geofenceIndex);
+        when(cacheManager.getDeviceValue(anyLong(), any(), any())).thenAnswer(invocation -> deviceGeofences);
+        when(cacheManager.getPosition(anyLong())).thenAnswer(invocation -> lastPosition);
+
+        geofenceIndex.update(createGeofence(1, "CIRCLE (10.025 20.025, 500)"));
+        deviceGeofences = Set.of(1L);
+        tracker = new GeofenceTracker(config, cacheManager);
+    }
+
+    @Test
+    public void testMoveWithinSafeDistance() {
+        assertEquals(List.of(1L), tracker.update(createPosition(10.025, 20.025)));
+        assertEquals(1, tracker.getChecked());
+
+        Position position = createPosition(10.026, 20.025);
+        assertEquals(List.of(1L), tracker.update(position));
+        assertEquals(1, tracker.getChecked());
+        assertEquals(1, tracker.getSkipped());
+        assertTrue(tracker.getEntered(position).isEmpty());
+        assertTrue(tracker.getExited(position).isEmpty());
+    }
+
+    @Test
+    public void testBoundaryCrossed() {
+        Position inside = createPosition(10.025, 20.025);
+        assertEquals(List.of(1L), tracker.update(inside));
+        assertEquals(List.of(1L), tracker.getEntered(inside));
+
+        Position outside = createPosition(10.031, 20.025);
+        assertTrue(tracker.update(outside).isEmpty());
+        assertEquals(2, tracker.getChecked());
+        assertEquals(List.of(1L), tracker.getExited(outside));
+
+        Position back = createPosition(10.0285, 20.025);
+        assertEquals(List.of(1L), tracker.update(back));
+        assertEquals(3, tracker.getChecked());
+        assertEquals(List.of(1L), tracker.getEntered(back));
+    }
+
+    @Test
+    public void testCellChanged() {
+        assertTrue(tracker.update(createPosition(10.049, 20.025)).isEmpty());
+        assertTrue(tracker.update(createPosition(10.0495, 20.025)).isEmpty());
+        assertEquals(1, tracker.getSkipped());
+
+        assertTrue(tracker.update(createPosition(10.051, 20.025)).isEmpty());
+        assertEquals(2, tracker.getChecked());
+        assertEquals(1, tracker.getSkipped());
+    }
+
+    @Test
+    public void testIndexVersionChanged() throws ParseException {
+        assertEquals(List.of(1L), tracker.update(createPosition(10.025, 20.025)));
+
+        geofenceIndex.update(createGeofence(1, "CIRCLE (10.03 20.03, 100)"));
+        Position position = createPosition(10.025, 20.025);
+        assertTrue(tracker.update(position).isEmpty());
+        assertEquals(2, tracker.getChecked());
+        assertEquals(List.of(1L), tracker.getExited(position));
+    }
+
+    @Test
+    public void testDeviceLinksChanged() {
+        assertEquals(List.of(1L), tracker.update(createPosition(10.025, 20.025)));
+
+        deviceGeofences = Set.of();
+        Position position = createPosition(10.025, 20.025);
+        assertTrue(tracker.update(position).isEmpty());
+        assertEquals(2, tracker.getChecked());
+        assertEquals(List.of(1L), tracker.getExited(position));
+    }
+
+    @Test
+    public void testOutOfOrderPosition() {
+        Position early = createPosition(10.031, 20.025);
+        Position latest = createPosition(10.025, 20.025);
+        assertEquals(List.of(1L), tracker.update(latest));
+        lastPosition = latest;
+
+        assertTrue(tracker.update(early).isEmpty());
+        assertEquals(2, tracker.getChecked());
+        assertNull(tracker.getEntered(early));
+        assertNull(tracker.getExited(early));
+
+        Position next = createPosition(10.026, 20.025);
+        assertEquals(List.of(1L), tracker.update(next));
+        assertEquals(1, tracker.getSkipped());
+        assertTrue(tracker.getExited(next).isEmpty());
+    }
+
+}
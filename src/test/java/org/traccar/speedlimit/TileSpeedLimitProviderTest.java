@@ -0,0 +1,143 @@
+package org.traccar.speedlimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.traccar.config.Config;
+import org.traccar.config.Keys;
+import org.traccar.helper.UnitsConverter;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.ws.rs.client.AsyncInvoker;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.InvocationCallback;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TileSpeedLimitProviderTest {
+
+    private static class ResultCallback implements SpeedLimitProvider.SpeedLimitProviderCallback {
+
+        private Double speedLimit;
+        private Throwable error;
+
+        @Override
+        public void onSuccess(double speedLimit) {
+            this.speedLimit = speedLimit;
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            this.error = e;
+        }
+
+    }
+
+    private static JsonObject createWay(String maxSpeed) {
+        JsonArrayBuilder geometry = Json.createArrayBuilder()
+                .add(Json.createObjectBuilder().add("lat", 10.01).add("lon", 20.0))
+                .add(Json.createObjectBuilder().add("lat", 10.01).add("lon", 20.02));
+        return Json.createObjectBuilder()
+                .add("tags", Json.createObjectBuilder().add("maxspeed", maxSpeed))
+                .add("geometry", geometry)
+                .build();
+    }
+
+    private final AsyncInvoker invoker = mock(AsyncInvoker.class);
+
+    private TileSpeedLimitProvider createProvider() {
+        Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.target(anyString()).request().async()).thenReturn(invoker);
+        return new TileSpeedLimitProvider(client, "http://localhost", new SpeedLimitTileCache(new Config()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private InvocationCallback<JsonObject> captureCallback() {
+        ArgumentCaptor<InvocationCallback<JsonObject>> captor = ArgumentCaptor.forClass(InvocationCallback.class);
+        verify(invoker).get(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void testParseSpeed() {
+        assertEquals(UnitsConverter.knotsFromKph(50), SpeedLimitTileCache.parseSpeed("50"), 0.01);
+        assertEquals(UnitsConverter.knotsFromMph(30), SpeedLimitTileCache.parseSpeed("30 mph"), 0.01);
+        assertNull(SpeedLimitTileCache.parseSpeed("5;10 mph"));
+        assertNull(SpeedLimitTileCache.parseSpeed("none mph"));
+        assertNull(SpeedLimitTileCache.parseSpeed("signals"));
+        assertNull(SpeedLimitTileCache.parseSpeed(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvalidTagSkipped() {
+        TileSpeedLimitProvider provider = createProvider();
+
+        ResultCallback first = new ResultCallback();
+        provider.getSpeedLimit(10.01, 20.01, first);
+        captureCallback().completed(Json.createObjectBuilder()
+                .add("elements", Json.createArrayBuilder().add(createWay("5;10 mph")).add(createWay("50")))
+                .build());
+
+        assertNotNull(first.speedLimit);
+        assertEquals(UnitsConverter.knotsFromKph(50), first.speedLimit, 0.01);
+
+        ResultCallback second = new ResultCallback();
+        provider.getSpeedLimit(10.0102, 20.015, second);
+        assertNotNull(second.speedLimit);
+        verify(invoker, times(1)).get(any(InvocationCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testFailedTileNotRepeated() {
+        TileSpeedLimitProvider provider = createProvider();
+
+        ResultCallback first = new ResultCallback();
+        provider.getSpeedLimit(10.01, 20.01, first);
+        captureCallback().failed(new IOException("Too many requests"));
+        assertNotNull(first.error);
+
+        ResultCallback second = new ResultCallback();
+        provider.getSpeedLimit(10.02, 20.01, second);
+        assertTrue(second.error instanceof SpeedLimitException);
+        verify(invoker, times(1)).get(any(InvocationCallback.class));
+    }
+
+    @Test
+    public void testOfflineInvalidTagSkipped(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("roads.osm");
+        Files.writeString(file, "<osm>\n"
+                + "<node id=\"1\" lat=\"10.01\" lon=\"20.0\"/>\n"
+                + "<node id=\"2\" lat=\"10.01\" lon=\"20.02\"/>\n"
+                + "<way id=\"10\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"maxspeed\" v=\"none mph\"/></way>\n"
+                + "<way id=\"11\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"maxspeed\" v=\"50\"/></way>\n"
+                + "</osm>\n", StandardCharsets.UTF_8);
+
+        Config config = new Config();
+        config.setString(Keys.SPEED_LIMIT_FILE, file.toString());
+        SpeedLimitTileCache cache = new SpeedLimitTileCache(config);
+
+        assertTrue(cache.isOffline());
+        SpeedLimitTileCache.Tile tile = cache.getTile(SpeedLimitTileCache.getTileKey(10.01, 20.01));
+        assertNotNull(tile);
+        assertEquals(UnitsConverter.knotsFromKph(50), tile.getSpeedLimit(10.01, 20.01), 0.01);
+    }
+
+}
@@ -0,0 +1,161 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.traccar.model.Position;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the compiled accessors of {@link EntityMapping} with the per-query reflection path they replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityMappingBenchmark {
+
+    private static final int ROWS = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleResultSet resultSet;
+    private Position position;
+    private final List<Method> getterMethods = new ArrayList<>();
+    private final List<Function<Object, Object>> getters = new ArrayList<>();
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.BIGINT, 0, 0);
+        resultSet.addColumn("rastreador_id", Types.BIGINT, 0, 0);
+        resultSet.addColumn("protocolo", Types.VARCHAR, 0, 0);
+        resultSet.addColumn("valido", Types.BOOLEAN, 0, 0);
+        resultSet.addColumn("latitude", Types.DOUBLE, 0, 0);
+        resultSet.addColumn("longitude", Types.DOUBLE, 0, 0);
+        resultSet.addColumn("altitude", Types.DOUBLE, 0, 0);
+        resultSet.addColumn("velocidade", Types.DOUBLE, 0, 0);
+        resultSet.addColumn("curso", Types.DOUBLE, 0, 0);
+        resultSet.addColumn("address", Types.VARCHAR, 0, 0);
+        resultSet.addColumn("attributes", Types.VARCHAR, 0, 0);
+        for (int i = 0; i < ROWS; i++) {
+            resultSet.addRow(
+                    (long) i, 1L, "osmand", true, 10.0 + i, 20.0 + i, 30.0, 40.0, 50.0, "address",
+                    "{\"ignition\":true,\"odometer\":" + i + "}");
+        }
+
+        position = new Position("osmand");
+        position.setLatitude(10);
+        position.setLongitude(20);
+        position.set("ignition", true);
+        EntityMapping mapping = EntityMapping.of(Position.class);
+        for (var entry : mapping.getGetters().entrySet()) {
+            getterMethods.add(Position.class.getMethod("get" + entry.getKey()));
+            getters.add(entry.getValue().getAccessor());
+        }
+    }
+
+    private interface ReflectionProcessor {
+        void process(Object object, ResultSet resultSet) throws ReflectiveOperationException, SQLException;
+    }
+
+    private ReflectionProcessor createReflectionProcessor(Method method, String name) {
+        Class<?> type = method.getParameterTypes()[0];
+        if (type.equals(boolean.class)) {
+            return (object, resultSet) -> method.invoke(object, resultSet.getBoolean(name));
+        } else if (type.equals(long.class)) {
+            return (object, resultSet) -> method.invoke(object, resultSet.getLong(name));
+        } else if (type.equals(double.class)) {
+            return (object, resultSet) -> method.invoke(object, resultSet.getDouble(name));
+        } else if (type.equals(String.class)) {
+            return (object, resultSet) -> method.invoke(object, resultSet.getString(name));
+        } else {
+            return (object, resultSet) -> {
+                String value = resultSet.getString(name);
+                if (value != null && !value.isEmpty()) {
+                    try {
+                        method.invoke(object, objectMapper.readValue(value, type));
+                    } catch (IOException ignored) {
+                    }
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    public void readRowsReflection(Blackhole blackhole) throws ReflectiveOperationException, SQLException {
+        resultSet.beforeFirst();
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        List<ReflectionProcessor> processors = new ArrayList<>();
+        for (Method method : Position.class.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterTypes().length == 1) {
+                String name = method.getName().substring(3);
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (name.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                        processors.add(createReflectionProcessor(method, name));
+                        break;
+                    }
+                }
+            }
+        }
+        while (resultSet.next()) {
+            Object object = Position.class.getDeclaredConstructor().newInstance();
+            for (ReflectionProcessor processor : processors) {
+                processor.process(object, resultSet);
+            }
+            blackhole.consume(object);
+        }
+    }
+
+    @Benchmark
+    public void readRowsMapped(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        EntityMapping mapping = EntityMapping.of(Position.class);
+        var processors = mapping.getReaders(resultSet.getMetaData());
+        while (resultSet.next()) {
+            Object object = mapping.newInstance();
+            for (var processor : processors) {
+                processor.process(object, resultSet, objectMapper);
+            }
+            blackhole.consume(object);
+        }
+    }
+
+    @Benchmark
+    public void readPropertiesReflection(Blackhole blackhole) throws ReflectiveOperationException {
+        for (Method method : getterMethods) {
+            blackhole.consume(method.invoke(position));
+        }
+    }
+
+    @Benchmark
+    public void readPropertiesMapped(Blackhole blackhole) {
+        for (var getter : getters) {
+            blackhole.consume(getter.apply(position));
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package org.traccar.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.traccar.model.Position;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntityMappingTest {
+
+    public static class Entity {
+
+        private long id;
+        private String name;
+        private int value;
+        private Map<String, Object> attributes;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            if (value < 0) {
+                throw new IllegalStateException("Negative value");
+            }
+            this.value = value;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, Object> attributes) {
+            this.attributes = attributes;
+        }
+
+    }
+
+    private static ResultSet mockResultSet(String... labels) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn(labels[i]);
+        }
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        return resultSet;
+    }
+
+    private static Entity read(ResultSet resultSet) throws SQLException {
+        EntityMapping mapping = EntityMapping.of(Entity.class);
+        Entity entity = (Entity) mapping.newInstance();
+        for (var processor : mapping.getReaders(resultSet.getMetaData())) {
+            processor.process(entity, resultSet, new ObjectMapper());
+        }
+        return entity;
+    }
+
+    @Test
+    public void testGetters() {
+        Position position = new Position("test");
+        position.setLatitude(10);
+        position.setValido(true);
+        EntityMapping mapping = EntityMapping.of(Position.class);
+        assertEquals(10.0, mapping.getGetter("latitude").getAccessor().apply(position));
+        assertEquals(true, mapping.getGetter("valido").getAccessor().apply(position));
+        assertEquals("test", mapping.getGetter("protocolo").getAccessor().apply(position));
+        assertEquals(double.class, mapping.getGetter("latitude").getType());
+    }
+
+    @Test
+    public void testReaders() throws SQLException {
+        ResultSet resultSet = mockResultSet("ID", "name", "attributes");
+        when(resultSet.getLong(1)).thenReturn(5L);
+        when(resultSet.getString(2)).thenReturn("test");
+        when(resultSet.getString(3)).thenReturn("{\"key\":\"value\"}");
+
+        Entity entity = read(resultSet);
+        assertEquals(5, entity.getId());
+        assertEquals("test", entity.getName());
+        assertEquals("value", entity.getAttributes().get("key"));
+        assertEquals(0, entity.getValue());
+    }
+
+    @Test
+    public void testReadersCachedPerColumns() throws SQLException {
+        EntityMapping mapping = EntityMapping.of(Entity.class);
+        var readers = mapping.getReaders(mockResultSet("id", "name").getMetaData());
+        assertSame(readers, mapping.getReaders(mockResultSet("ID", "Name").getMetaData()));
+        assertEquals(1, mapping.getReaders(mockResultSet("id").getMetaData()).size());
+    }
+
+    @Test
+    public void testSetterExceptionSkipped() throws SQLException {
+        ResultSet resultSet = mockResultSet("id", "value", "name");
+        when(resultSet.getLong(1)).thenReturn(5L);
+        when(resultSet.getInt(2)).thenReturn(-1);
+        when(resultSet.getString(3)).thenReturn("test");
+
+        Entity entity = read(resultSet);
+        assertEquals(5, entity.getId());
+        assertEquals(0, entity.getValue());
+        assertEquals("test", entity.getName());
+    }
+
+    @Test
+    public void testPositionOutOfRangeSkipped() throws SQLException {
+        ResultSet resultSet = mockResultSet("latitude", "longitude");
+        when(resultSet.getDouble(1)).thenReturn(91.0);
+        when(resultSet.getDouble(2)).thenReturn(20.0);
+
+        EntityMapping mapping = EntityMapping.of(Position.class);
+        Position position = (Position) mapping.newInstance();
+        for (var processor : mapping.getReaders(resultSet.getMetaData())) {
+            processor.process(position, resultSet, new ObjectMapper());
+        }
+        assertEquals(0, position.getLatitude());
+        assertEquals(20, position.getLongitude());
+    }
+
+    @Test
+    public void testInvalidJsonSkipped() throws SQLException {
+        ResultSet resultSet = mockResultSet("name", "attributes");
+        when(resultSet.getString(1)).thenReturn("test");
+        when(resultSet.getString(2)).thenReturn("{invalid");
+
+        Entity entity = read(resultSet);
+        assertEquals("test", entity.getName());
+        assertNull(entity.getAttributes());
+    }
+
+    @Test
+    public void testNewInstance() {
+        assertTrue(EntityMapping.of(Position.class).newInstance() instanceof Position);
+    }
+
+}